@@ -0,0 +1,30 @@
+package com.github.dwolverton.consoletester;
+
+import java.util.Arrays;
+import java.util.Scanner;
+
+/**
+ * A console program for benchmarks. Asks for a line of input a given number of times and
+ * echoes each one, printing a given amount of padding before each prompt.
+ */
+public class EchoProgram {
+
+	public static final String PROMPTS = "consoletester.bench.prompts";
+	public static final String OUTPUT_BYTES = "consoletester.bench.outputBytes";
+
+	public static void main(String[] args) {
+		int prompts = Integer.getInteger(PROMPTS, 1);
+		char[] padding = new char[Integer.getInteger(OUTPUT_BYTES, 0)];
+		Arrays.fill(padding, 'x');
+		Scanner scnr = new Scanner(System.in);
+		for (int i = 0; i < prompts; i++) {
+			if (padding.length > 0) {
+				System.out.println(padding);
+			}
+			System.out.println("Say something");
+			System.out.println("You said " + scnr.nextLine());
+		}
+		System.out.println("Bye");
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.github.dwolverton.consoletester;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dwolverton.consoletester.runner.EchoSink;
+import com.github.dwolverton.consoletester.runner.Runner;
+
+/**
+ * End to end cost of testing a program in this JVM: starting it, each prompt and answer,
+ * and terminating it. Nothing is echoed to the console.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RunnerBenchmark {
+
+	/** Programs run one after another on the same runner, as in a test class. */
+	@State(Scope.Thread)
+	public static class Runners {
+		Runner runner;
+
+		@Setup(Level.Trial)
+		public void createRunner() {
+			runner = new Runner();
+			runner.setEchoSink(EchoSink.none());
+		}
+
+		void program(int prompts, int outputBytes) {
+			System.setProperty(EchoProgram.PROMPTS, String.valueOf(prompts));
+			System.setProperty(EchoProgram.OUTPUT_BYTES, String.valueOf(outputBytes));
+		}
+	}
+
+	public static class Prompts extends Runners {
+		@Param({ "1", "100", "10000", "100000" })
+		public int prompts;
+
+		@Setup(Level.Trial)
+		public void configure() {
+			program(prompts, 0);
+		}
+	}
+
+	public static class BlockSize extends Runners {
+		@Param({ "16", "1024", "65536", "1048576" })
+		public int outputBytes;
+
+		@Setup(Level.Trial)
+		public void configure() {
+			program(10, outputBytes);
+		}
+	}
+
+	public static class Startup extends Runners {
+		@Setup(Level.Trial)
+		public void configure() {
+			program(0, 0);
+		}
+	}
+
+	/** A program that was started, ready to be terminated. */
+	public static class Started extends Runners {
+		/** Whether the program is waiting for input or has ended when it is terminated. */
+		@Param({ "waiting", "ended" })
+		public String state;
+
+		@Setup(Level.Trial)
+		public void configure() {
+			program(state.equals("waiting") ? 1 : 0, 0);
+		}
+
+		@Setup(Level.Invocation)
+		public void start() {
+			runner.start(EchoProgram.class);
+			// Waits for the prompt, or the end.
+			runner.nextBlock();
+		}
+	}
+
+	private static void converse(Runners state, int prompts) {
+		IOTester io = new IOTester(state.runner);
+		io.start(EchoProgram.class);
+		for (int i = 0; i < prompts; i++) {
+			io.prompt("Say something", "hello");
+		}
+		io.out("Bye");
+		io.end();
+	}
+
+	@Benchmark
+	public void prompts(Prompts state) {
+		converse(state, state.prompts);
+	}
+
+	@Benchmark
+	public void blockSize(BlockSize state) {
+		converse(state, 10);
+	}
+
+	/** Loading the program's classes with a new TempClassLoader, starting and ending it. */
+	@Benchmark
+	public void startMainClass(Startup state) {
+		converse(state, 0);
+	}
+
+	/** The same program without the TempClassLoader, to compare with startMainClass. */
+	@Benchmark
+	public void startRunnable(Startup state) {
+		IOTester io = new IOTester(state.runner);
+		io.start(EchoProgram::main);
+		io.out("Bye");
+		io.end();
+	}
+
+	@Benchmark
+	public void terminate(Started state) {
+		state.runner.terminate(true);
+	}
+
+}
@@ -0,0 +1,123 @@
+package com.github.dwolverton.consoletester.match;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dwolverton.consoletester.runner.OutputBuffer;
+
+/**
+ * How long each kind of {@link Match} takes to search program output. The output is held in
+ * an {@link OutputBuffer}, as it is while testing, so large outputs are spilled to disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatchBenchmark {
+
+	private static final String FILLER = "Line %08d: nothing to see here, move along please";
+	private static final String TARGET = "Total: 42 widgets";
+
+	/** Bytes of output: 1 KB, 1 MB and 100 MB. */
+	@Param({ "1024", "1048576", "104857600" })
+	public int size;
+
+	/** Where the expected text is: start, middle, end or none (a miss). */
+	@Param({ "start", "middle", "end", "none" })
+	public String position;
+
+	private OutputBuffer buffer;
+	private CharSequence output;
+
+	private final Match contains = Match.exact("Total: 42");
+	private final Match containsWholeWord = Match.exactWholeWord("widgets");
+	private final Match regex = Match.regex("Total: \\d+ widgets");
+	private final Match line = Match.lineWith("widgets");
+	private final Match any = Match.any("no such thing", "Total: 42");
+	private final Match all = Match.all("Total:", "widgets");
+
+	@Setup(Level.Trial)
+	public void generate() {
+		buffer = new OutputBuffer();
+		long targetAt = position.equals("start") ? 0
+				: position.equals("middle") ? size / 2
+				// Within the last few lines.
+				: position.equals("end") ? size - 128
+				: Long.MAX_VALUE;
+		long written = 0;
+		int lineNumber = 0;
+		boolean targetWritten = false;
+		while (written < size) {
+			String text;
+			if (!targetWritten && written >= targetAt) {
+				text = TARGET;
+				targetWritten = true;
+			} else {
+				text = String.format(FILLER, lineNumber++);
+			}
+			byte[] bytes = (text + "\n").getBytes(StandardCharsets.UTF_8);
+			buffer.write(bytes, 0, bytes.length);
+			written += bytes.length;
+		}
+		output = buffer.view(0, buffer.length());
+	}
+
+	@TearDown(Level.Trial)
+	public void release() {
+		buffer.close();
+	}
+
+	@Benchmark
+	public Optional<MatchInfo> contains() {
+		return contains.match(output, 0);
+	}
+
+	@Benchmark
+	public Optional<MatchInfo> containsWholeWord() {
+		return containsWholeWord.match(output, 0);
+	}
+
+	@Benchmark
+	public Optional<MatchInfo> regex() {
+		return regex.match(output, 0);
+	}
+
+	@Benchmark
+	public Optional<MatchInfo> line() {
+		return line.match(output, 0);
+	}
+
+	@Benchmark
+	public Optional<MatchInfo> any() {
+		return any.match(output, 0);
+	}
+
+	@Benchmark
+	public Optional<MatchInfo> all() {
+		return all.match(output, 0);
+	}
+
+	/** The default search for the last match, which searches again after each one. */
+	@Benchmark
+	public Optional<MatchInfo> matchLast() {
+		return contains.matchLast(output, 0);
+	}
+
+}
@@ -2,18 +2,25 @@ package com.github.dwolverton.consoletester;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import com.github.dwolverton.consoletester.match.Found;
+import com.github.dwolverton.consoletester.match.LineUtils;
 import com.github.dwolverton.consoletester.match.Match;
 import com.github.dwolverton.consoletester.match.MatchInfo;
 import com.github.dwolverton.consoletester.runner.BlockEndType;
+import com.github.dwolverton.consoletester.runner.ForkedRunner;
+import com.github.dwolverton.consoletester.runner.HangDetector;
 import com.github.dwolverton.consoletester.runner.IOBlock;
+import com.github.dwolverton.consoletester.runner.JfrEvents;
+import com.github.dwolverton.consoletester.runner.ProgramRunner;
 import com.github.dwolverton.consoletester.runner.Runnables;
 import com.github.dwolverton.consoletester.runner.Runner;
+import com.github.dwolverton.consoletester.runner.RunnerMetrics;
 
 public class IOTester {
 	
@@ -21,17 +28,42 @@ public class IOTester {
 		Runner.init(); // Tap into System.in as soon as possible.
 	}
 	
+	private final ProgramRunner runner;
 	private Set<Match> disallowed = new HashSet<>();
 	
+	// Null or RUNNING until the program finishes the block.
 	private IOBlock block;
 	private int outputOffset;
+	// How far the running block has been searched, while streaming.
+	private int scannedTo;
+	private boolean streaming = Boolean.getBoolean("consoletester.streaming");
+	private HangDetector hangDetector = HangDetector.DEFAULT;
+	private long deadlineMillis = Long.MAX_VALUE;
+	private final RunnerMetrics metrics = new RunnerMetrics();
+	
+	/**
+	 * Create an IOTester that runs programs in this JVM.
+	 */
+	public IOTester() {
+		this(new Runner());
+	}
+	
+	/**
+	 * Create an IOTester that runs programs with the given runner. For example, use a
+	 * {@link ForkedRunner} to run each program in a separate JVM.
+	 */
+	public IOTester(ProgramRunner runner) {
+		this.runner = runner;
+		runner.setMetrics(metrics);
+	}
 	
 	/**
 	 * Start a console program to test.
 	 * @param mainClass a class that has a public static void main method to run.
 	 */
 	public void start(Class<?> mainClass) {
-		start(Runnables.fromMainClassWithTempClassLoader(mainClass));
+		runner.start(mainClass);
+		nextBlock();
 	}
 	
 	/**
@@ -40,7 +72,8 @@ public class IOTester {
 	 *        provide the package & name, such as "com.example.MySweetProgram".
 	 */
 	public void start(String mainClass) {
-		start(Runnables.fromMainClassWithTempClassLoader(mainClass));
+		runner.start(mainClass);
+		nextBlock();
 	}
 	
 	/**
@@ -58,10 +91,59 @@ public class IOTester {
 	 *        For example, <code>io.start(() -> System.out.println("Hello!"));</code>
 	 */
 	public void start(Runnable codeToTest) {
-		Runner.start(codeToTest);
+		runner.start(codeToTest);
 		nextBlock();
 	}
 	
+	/**
+	 * Customize how long a program may run without finishing a block before it is
+	 * considered hung. See {@link HangDetector}.
+	 */
+	public void setHangDetector(HangDetector hangDetector) {
+		this.hangDetector = hangDetector;
+		runner.setHangDetector(hangDetector.withDeadline(deadlineMillis));
+	}
+	
+	/**
+	 * @return measurements of the programs run by this IOTester so far.
+	 */
+	public RunnerMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * Stop waiting for programs once the given time, in {@link System#currentTimeMillis()}
+	 * time, has passed. Any check still waiting for the program fails. This is how
+	 * {@link com.github.dwolverton.consoletester.junit5.TimeBudget} is enforced.
+	 */
+	public void setDeadline(long deadlineMillis) {
+		this.deadlineMillis = deadlineMillis;
+		runner.setHangDetector(hangDetector.withDeadline(deadlineMillis));
+	}
+	
+	/**
+	 * Run programs on virtual threads when the JVM supports them (Java 21 and later).
+	 * This makes programs waiting for input much cheaper when running many tests in parallel.
+	 * Platform threads are used otherwise.
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		runner.setVirtualThreads(virtualThreads);
+	}
+	
+	/**
+	 * Whether {@link #out(Match)} and similar may find a match in output that is still
+	 * arriving, without waiting for the program to pause for input or end. Only complete
+	 * lines of output are searched this way, and never while any matches are disallowed.
+	 *
+	 * <p>A regex can match differently in part of a block than in all of it, for example
+	 * <code>\d+(\s+\d+)*</code> finds fewer numbers if more are on their way, and a match
+	 * that spans lines may be found later than it would be otherwise. Defaults to the
+	 * <code>consoletester.streaming</code> system property, or false.
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+	
 	/**
 	 * Start a group. A group allows multiple I/O operations to be tested for in
 	 * any order. See {@link Group}.
@@ -78,6 +160,22 @@ public class IOTester {
 		return new Group(this);
 	}
 	
+	/**
+	 * Start a script. A script feeds the program all of its input up front and then checks
+	 * its output in order. See {@link Script}.
+	 * 
+	 * Generally this will done with method chaining. For example,
+	 * <pre>{@code
+	 *   io.script()
+	 *     .prompt("name?", "Mickey")
+	 *     .out("Hello Mickey")
+	 *     .exec();
+	 * }</pre>
+	 */
+	public Script script() {
+		return new Script(this);
+	}
+	
 	/**
 	 * Expect to find the given match in the output.
 	 * @return information about the match that was found
@@ -155,11 +253,30 @@ public class IOTester {
 	 * @throws AssertionError if the program ends or hangs before requesting user input.
 	 */
 	public void in(Object input) throws AssertionError {
-		if (block.getEndType() != BlockEndType.INPUT) {
+		expectInputRequest(input);
+		runner.in(input);
+		nextBlock();
+	}
+	
+	/**
+	 * Give the program lines of input to be used as it requests them. See {@link Script}.
+	 */
+	void script(List<?> inputs) {
+		runner.script(inputs);
+	}
+	
+	/**
+	 * Like {@link #in(Object)} for input that was given to the program by {@link #script(List)}.
+	 */
+	void scriptedIn(Object input) throws AssertionError {
+		expectInputRequest(input);
+		nextBlock();
+	}
+	
+	private void expectInputRequest(Object input) throws AssertionError {
+		if (endedBlock().getEndType() != BlockEndType.INPUT) {
 			fail("Expected user to be able to enter <" + input + "> but " + block.getEndType().getActualMessage() + ".");
 		}
-		Runner.in(input);
-		nextBlock();
 	}
 	
 	/**
@@ -379,7 +496,8 @@ public class IOTester {
 	 * Run to the end expecting no more input required.
 	 */
 	public void end() {
-		Runner.terminate(false);
+		endedBlock();
+		runner.terminate(false);
 		if (block.getEndType() != BlockEndType.END) {
 			fail("Expected end of program but " + block.getEndType().getActualMessage() + ".");
 		}
@@ -389,7 +507,7 @@ public class IOTester {
 	 * Terminate the program.
 	 */
 	public void skipToEnd() {
-		Runner.terminate(true);
+		runner.terminate(true);
 	}
 	
 	/**
@@ -397,7 +515,14 @@ public class IOTester {
 	 * @throws AssertionError if no match found
 	 */
 	private Found findNextInBlock(Match matcher) throws AssertionError {
-		MatchInfo info = matcher.match(block.getOutput(), outputOffset).orElse(null);
+		if (streaming && disallowed.isEmpty()) {
+			Found found = findInRunningBlock(matcher);
+			if (found != null) {
+				return found;
+			}
+		}
+		endedBlock();
+		MatchInfo info = match(matcher, block.getOutputView()).orElse(null);
 		if (info == null) {
 			return fail("Expected console output " + matcher.getExpectedMessage() + " but " + block.getEndType().getActualMessage() + ".");
 		} else {
@@ -405,7 +530,7 @@ public class IOTester {
 				return fail("Expected console output " + matcher.getExpectedMessage() + " but found output " + Match.any(disallowed.stream().toArray(Match[]::new)).getExpectedMessage());
 			}
 			outputOffset = info.getEnd();
-			return new Found(block.getOutput(), info);
+			return new Found(block.getOutputView(), info);
 		}
 	}
 	
@@ -413,13 +538,87 @@ public class IOTester {
 		if (disallowed.isEmpty()) {
 			return false;
 		}
-		Optional<MatchInfo> disallowedInfo = Match.any(disallowed.stream().toArray(Match[]::new)).match(block.getOutput(), outputOffset);
+		Optional<MatchInfo> disallowedInfo = match(Match.any(disallowed.stream().toArray(Match[]::new)), block.getOutputView());
 		return disallowedInfo.isPresent() && disallowedInfo.get().getStart() < position;
 	}
 	
+	/**
+	 * Look for the match in the output so far, waiting for more output until it is found or
+	 * the block ends. Only complete lines are searched, since a match at the very end of the
+	 * output might turn out differently once more arrives.
+	 * @return null if the block ended first.
+	 */
+	private Found findInRunningBlock(Match matcher) {
+		if (block != null && block.getEndType() != BlockEndType.RUNNING) {
+			return null;
+		}
+		block = runner.nextBlock(output -> scanCompleteLines(matcher, output));
+		if (block.getEndType() != BlockEndType.RUNNING) {
+			return null;
+		}
+		CharSequence output = block.getOutputView();
+		int start = Math.max(outputOffset, scannedTo);
+		int end = LineUtils.findEndOfCompleteLines(output, start);
+		MatchInfo info = match(matcher, output.subSequence(0, end), start).get();
+		outputOffset = info.getEnd();
+		scannedTo = outputOffset;
+		return new Found(output, info);
+	}
+	
+	/**
+	 * Search the complete lines that haven't been searched yet. This is called each time
+	 * more output arrives, so it isn't counted in the metrics; only the final match is.
+	 * @return whether the match was found.
+	 */
+	private boolean scanCompleteLines(Match matcher, CharSequence output) {
+		int start = Math.max(outputOffset, scannedTo);
+		int end = LineUtils.findEndOfCompleteLines(output, start);
+		if (end <= start) {
+			return false;
+		}
+		if (matcher.match(output.subSequence(0, end), start).isPresent()) {
+			return true;
+		}
+		scannedTo = end;
+		return false;
+	}
+	
+	private Optional<MatchInfo> match(Match matcher, CharSequence output) {
+		return match(matcher, output, outputOffset);
+	}
+	
+	private Optional<MatchInfo> match(Match matcher, CharSequence output, int from) {
+		long start = System.nanoTime();
+		Object event = JfrEvents.beginMatch();
+		Optional<MatchInfo> found = Optional.empty();
+		try {
+			found = matcher.match(output, from);
+			return found;
+		} finally {
+			metrics.getMatchNanos().record(System.nanoTime() - start);
+			if (event != null) {
+				JfrEvents.endMatch(event, matcher.getExpectedMessage(), found.isPresent());
+			}
+		}
+	}
+	
+	/**
+	 * Move on to the next block. It is only waited for when needed.
+	 */
 	private void nextBlock() {
-		block = Runner.nextBlock();
+		block = null;
 		outputOffset = 0;
+		scannedTo = 0;
+	}
+	
+	/**
+	 * @return the current block, after waiting for the program to finish it.
+	 */
+	private IOBlock endedBlock() {
+		if (block == null || block.getEndType() == BlockEndType.RUNNING) {
+			block = runner.nextBlock();
+		}
+		return block;
 	}
 	
 	public static <T> T fail(String message) throws AssertionError {
@@ -0,0 +1,83 @@
+package com.github.dwolverton.consoletester;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.dwolverton.consoletester.match.Match;
+
+/**
+ * A Script is a fixed sequence of output expectations and input lines. Unlike calling
+ * {@link IOTester#out(Object)} and {@link IOTester#in(Object)} one at a time, all of the
+ * input is handed to the program up front. Each time the program waits for input it gets the
+ * next line right away, so it runs at full speed without waiting for the test. The output
+ * it recorded is then checked against the expectations in order.
+ * 
+ * <p>Scripts are constructed using method chaining. Once all steps have been added run the
+ * {@link #exec()} method. The best way to create a script is using the
+ * {@link IOTester#script()} method of IOTester. For example,
+ * <pre>{@code
+ *   io.script()
+ *     .prompt("name?", "Mickey")
+ *     .out("Hello Mickey")
+ *     .prompt("again?", "no")
+ *     .exec();
+ * }</pre>
+ */
+public class Script {
+	
+	private IOTester io;
+	private List<Step> steps = new ArrayList<>();
+	
+	public Script(IOTester io) {
+		this.io = io;
+	}
+	
+	public Script out(Match match) {
+		steps.add(new Step(match, null));
+		return this;
+	}
+	
+	public Script out(Object match) {
+		return out(Match.of(match));
+	}
+	
+	public Script in(Object input) {
+		steps.add(new Step(null, input));
+		return this;
+	}
+	
+	public Script prompt(Match match, Object input) {
+		return out(match).in(input);
+	}
+	
+	public Script prompt(Object match, Object input) {
+		return prompt(Match.of(match), input);
+	}
+	
+	public void exec() {
+		List<Object> inputs = new ArrayList<>();
+		for (Step step : steps) {
+			if (step.match == null) {
+				inputs.add(step.input);
+			}
+		}
+		io.script(inputs);
+		for (Step step : steps) {
+			if (step.match != null) {
+				io.out(step.match);
+			} else {
+				io.scriptedIn(step.input);
+			}
+		}
+	}
+	
+	private static class Step {
+		public Match match;
+		public Object input;
+		public Step(Match match, Object input) {
+			this.match = match;
+			this.input = input;
+		}
+	}
+
+}
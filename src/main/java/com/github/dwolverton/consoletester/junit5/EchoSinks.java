@@ -0,0 +1,99 @@
+package com.github.dwolverton.consoletester.junit5;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
+import org.junit.jupiter.api.extension.ExtensionContext.Store.CloseableResource;
+
+import com.github.dwolverton.consoletester.runner.EchoSink;
+import com.github.dwolverton.consoletester.runner.FileEchoSink;
+import com.github.dwolverton.consoletester.runner.RingEchoSink;
+
+/**
+ * Gives each test its own {@link EchoSink}, chosen by the <code>consoletester.echo</code>
+ * system property:
+ * <ul>
+ * <li><code>console</code> (default): show everything on the console.</li>
+ * <li><code>none</code>: show nothing.</li>
+ * <li><code>ring</code>: keep the last <code>consoletester.echo.ringBytes</code> (default 64K)
+ * in memory and add them to the failure if the test fails.</li>
+ * <li><code>file</code>: write a log file for each test method in
+ * <code>consoletester.echo.dir</code> (default build/console-echo).</li>
+ * </ul>
+ */
+final class EchoSinks {
+
+	private static final Namespace NAMESPACE = Namespace.create(EchoSinks.class);
+
+	private static final String MODE = System.getProperty("consoletester.echo", "console");
+	private static final int RING_BYTES = Integer.getInteger("consoletester.echo.ringBytes", 64 << 10);
+	private static final String DIR = System.getProperty("consoletester.echo.dir", "build/console-echo");
+
+	// Files written so far by this JVM. Later tests with the same name add to them.
+	private static final Set<Path> files = ConcurrentHashMap.newKeySet();
+
+	/** Cannot be instantiated. */
+	private EchoSinks() {}
+
+	private static class Holder implements CloseableResource {
+		final EchoSink sink;
+
+		Holder(EchoSink sink) {
+			this.sink = sink;
+		}
+
+		@Override
+		public void close() {
+			sink.close();
+		}
+	}
+
+	/**
+	 * The program's console output, shown with a failure.
+	 */
+	static class ConsoleOutput extends Throwable {
+		private static final long serialVersionUID = 1L;
+
+		ConsoleOutput(String text) {
+			super("Console output before the failure:" + System.lineSeparator() + text, null, false, false);
+		}
+	}
+
+	/**
+	 * @return the sink for the current test, closed when the test is done.
+	 */
+	static EchoSink forTest(ExtensionContext ec) {
+		return ec.getStore(NAMESPACE).getOrComputeIfAbsent(Holder.class, k -> new Holder(create(ec)), Holder.class).sink;
+	}
+
+	/**
+	 * Add what the test's ring sink holds, if it has one, to the test's failure.
+	 */
+	static void attachTo(ExtensionContext ec, Throwable failure) {
+		Holder holder = ec.getStore(NAMESPACE).get(Holder.class, Holder.class);
+		if (holder != null && holder.sink instanceof RingEchoSink) {
+			failure.addSuppressed(new ConsoleOutput(((RingEchoSink) holder.sink).getText()));
+		}
+	}
+
+	private static EchoSink create(ExtensionContext ec) {
+		switch (MODE) {
+		case "none":
+			return EchoSink.none();
+		case "ring":
+			return new RingEchoSink(RING_BYTES);
+		case "file":
+			String name = ec.getTestClass().map(Class::getName).orElse("")
+					+ ec.getTestMethod().map(m -> "." + m.getName()).orElse("") + ".log";
+			Path file = Paths.get(DIR).resolve(name).toAbsolutePath();
+			return new FileEchoSink(file, !files.add(file));
+		default:
+			return EchoSink.console();
+		}
+	}
+
+}
@@ -9,7 +9,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 
 @Target({ ElementType.TYPE })
 @Retention(RetentionPolicy.RUNTIME)
-@ExtendWith({ TestCaseHeader.class, IOTesterParameterResolver.class })
+@ExtendWith({ TestCaseHeader.class, TimeBudgetExtension.class, IOTesterParameterResolver.class })
 /**
  * Use this annotation to set up the defaults for a JUnit 5 test with full feedback.
  */
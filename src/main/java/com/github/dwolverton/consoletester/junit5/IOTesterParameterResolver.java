@@ -1,32 +1,138 @@
 package com.github.dwolverton.consoletester.junit5;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.jupiter.api.extension.AfterEachCallback;
 import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
 import org.junit.jupiter.api.extension.ParameterContext;
 import org.junit.jupiter.api.extension.ParameterResolutionException;
 import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.jupiter.api.extension.TestExecutionExceptionHandler;
 
 import com.github.dwolverton.consoletester.IOTester;
+import com.github.dwolverton.consoletester.runner.CachingRunner;
+import com.github.dwolverton.consoletester.runner.ProgramRunner;
+import com.github.dwolverton.consoletester.runner.RecordingRunner;
+import com.github.dwolverton.consoletester.runner.ReplayRunner;
+import com.github.dwolverton.consoletester.runner.ResultCache;
 import com.github.dwolverton.consoletester.runner.Runner;
+import com.github.dwolverton.consoletester.runner.Transcript;
+import com.github.dwolverton.consoletester.runner.TranscriptStore;
+
+/**
+ * Provides each test with IOTesters.
+ *
+ * <p>Set the system property <code>consoletester.transcripts</code> to a directory and
+ * <code>consoletester.transcripts.mode</code> to <code>record</code> to save a
+ * {@link Transcript} of every test there, or to <code>replay</code> to check the tests against
+ * the saved transcripts instead of running any programs.
+ *
+ * <p>Set <code>consoletester.cache</code> to a directory to reuse the results of earlier runs
+ * of unchanged programs given the same input. See {@link CachingRunner}.
+ *
+ * <p>Set <code>consoletester.echo</code> to <code>console</code> (the default), <code>none</code>,
+ * <code>ring</code> or <code>file</code> to choose where programs' output and input are shown.
+ * With <code>ring</code>, the end of it is added to the failure of any test that fails.
+ *
+ * <p>IOTesters stop waiting for programs at the end of the test's {@link TimeBudget}.
+ *
+ * <p>Set <code>consoletester.metrics</code> to <code>true</code> to publish each test's
+ * {@link com.github.dwolverton.consoletester.runner.RunnerMetrics} as report entries. Whether
+ * each program shared a class loader with its earlier runs is always published, as
+ * <code>classLoader</code>.
+ */
+public class IOTesterParameterResolver implements ParameterResolver, AfterEachCallback, TestExecutionExceptionHandler {
+
+		private static final Namespace NAMESPACE = Namespace.create(IOTesterParameterResolver.class);
+
+		private static final String TRANSCRIPTS_DIR = System.getProperty("consoletester.transcripts");
+		private static final String TRANSCRIPTS_MODE = System.getProperty("consoletester.transcripts.mode", "record");
+		private static final boolean METRICS = Boolean.getBoolean("consoletester.metrics");
+		private static final ResultCache CACHE = System.getProperty("consoletester.cache") == null ? null
+				: new ResultCache(Paths.get(System.getProperty("consoletester.cache")));
 
-public class IOTesterParameterResolver implements ParameterResolver, AfterEachCallback {
-		
 		@Override
 		public Object resolveParameter(ParameterContext pc, ExtensionContext ec)
 				throws ParameterResolutionException {
-			IOTester io = new IOTester();
+			List<IOTester> testers = testers(ec);
+			ProgramRunner runner;
+			if (TRANSCRIPTS_DIR == null) {
+				runner = newRunner();
+			} else {
+				TranscriptStore store = new TranscriptStore(Paths.get(TRANSCRIPTS_DIR));
+				String name = ec.getUniqueId() + "#" + pc.getIndex();
+				if (TRANSCRIPTS_MODE.equals("replay")) {
+					runner = new ReplayRunner(findTranscript(store, name));
+				} else {
+					runner = new RecordingRunner(newRunner(), store, name);
+				}
+			}
+			runner.setEchoSink(EchoSinks.forTest(ec));
+			IOTester io = new IOTester(runner);
+			long deadline = TimeBudgetExtension.deadline(ec);
+			if (deadline != Long.MAX_VALUE) {
+				io.setDeadline(deadline);
+			}
+			testers.add(io);
 			return io;
 		}
 
+		private static ProgramRunner newRunner() {
+			return CACHE == null ? new Runner() : new CachingRunner(new Runner(), CACHE);
+		}
+
+		private static Transcript findTranscript(TranscriptStore store, String name) {
+			try {
+				return store.find(name).orElseThrow(() -> new ParameterResolutionException("No transcript was recorded for " + name));
+			} catch (IOException e) {
+				throw new ParameterResolutionException("Unable to read transcript for " + name, e);
+			}
+		}
+
 		@Override
 		public boolean supportsParameter(ParameterContext pc, ExtensionContext ec)
 				throws ParameterResolutionException {
 			return pc.getParameter().getType().equals(IOTester.class);
 		}
 
+		@Override
+		public void handleTestExecutionException(ExtensionContext ec, Throwable throwable) throws Throwable {
+			EchoSinks.attachTo(ec, throwable);
+			throw throwable;
+		}
+
 		@Override
 		public void afterEach(ExtensionContext ec) throws Exception {
-			Runner.terminate(true);
+			List<IOTester> testers = testers(ec);
+			for (int i = 0; i < testers.size(); i++) {
+				IOTester io = testers.get(i);
+				io.skipToEnd();
+				String prefix = testers.size() == 1 ? "" : "io" + (i + 1) + ".";
+				Map<String, String> entries = new LinkedHashMap<>();
+				if (METRICS) {
+					io.getMetrics().toMap().forEach((name, value) -> entries.put(prefix + name, value));
+				} else if (io.getMetrics().getClassLoaderDecision() != null) {
+					// Always shown, so graders can see which programs shared a class loader.
+					entries.put(prefix + "classLoader", io.getMetrics().getClassLoaderDecision());
+				}
+				if (!entries.isEmpty()) {
+					ec.publishReportEntry(entries);
+				}
+			}
+		}
+
+		/**
+		 * Each test gets its own IOTesters, so tests can safely run in parallel.
+		 */
+		@SuppressWarnings("unchecked")
+		private static List<IOTester> testers(ExtensionContext ec) {
+			return ec.getStore(NAMESPACE).getOrComputeIfAbsent(IOTester.class, k -> new ArrayList<IOTester>(), List.class);
 		}
 
-	}
\ No newline at end of file
+	}
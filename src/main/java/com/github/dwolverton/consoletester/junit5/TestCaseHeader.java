@@ -3,6 +3,12 @@ package com.github.dwolverton.consoletester.junit5;
 import org.junit.jupiter.api.extension.BeforeEachCallback;
 import org.junit.jupiter.api.extension.ExtensionContext;
 
+import com.github.dwolverton.consoletester.runner.EchoSink;
+
+/**
+ * Shows the name of each test before its output, through the test's echo sink. See
+ * {@link IOTesterParameterResolver}.
+ */
 public class TestCaseHeader implements BeforeEachCallback {
 
 	@Override
@@ -10,8 +16,9 @@ public class TestCaseHeader implements BeforeEachCallback {
 		String header = context.getRequiredTestMethod().getName();
 		header = splitCamelCase(header);
 		header = capitalizeFirstLetter(header);
-		System.out.println();
-		System.out.println(" === " + header + " ===");
+		EchoSink sink = EchoSinks.forTest(context);
+		sink.println("");
+		sink.println(" === " + header + " ===");
 	}
 
 	private static String splitCamelCase(String s) {
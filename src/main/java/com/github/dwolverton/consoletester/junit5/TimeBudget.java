@@ -0,0 +1,25 @@
+package com.github.dwolverton.consoletester.junit5;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Limit the total wall-clock time of a test, or of all the tests in a class together. Hang
+ * detection never waits past the budget, and once a class's budget is used up its remaining
+ * tests fail right away. See {@link TimeBudgetExtension}.
+ */
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(TimeBudgetExtension.class)
+public @interface TimeBudget {
+
+	long value();
+
+	TimeUnit unit() default TimeUnit.SECONDS;
+
+}
@@ -0,0 +1,75 @@
+package com.github.dwolverton.consoletester.junit5;
+
+import java.lang.reflect.AnnotatedElement;
+import java.util.Optional;
+
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
+
+/**
+ * Enforces {@link TimeBudget}s, along with a budget for the whole test run set in seconds by
+ * the <code>consoletester.budget</code> system property. The run's budget starts when its
+ * first test class starts.
+ *
+ * <p>Each test gets a deadline: the soonest of the end of its own budget, its class's and the
+ * run's. {@link IOTesterParameterResolver} passes it on to the test's IOTesters.
+ */
+public class TimeBudgetExtension implements BeforeAllCallback, BeforeEachCallback {
+
+	private static final Namespace NAMESPACE = Namespace.create(TimeBudgetExtension.class);
+	private static final String DEADLINE = "deadline";
+
+	private static final long SUITE_BUDGET_MILLIS = Long.getLong("consoletester.budget", 0) * 1000;
+	private static long suiteDeadline;
+
+	@Override
+	public void beforeAll(ExtensionContext ec) throws Exception {
+		long deadline = suiteDeadline();
+		Optional<TimeBudget> budget = budget(ec.getTestClass());
+		if (budget.isPresent()) {
+			deadline = Math.min(deadline, System.currentTimeMillis() + budget.get().unit().toMillis(budget.get().value()));
+		}
+		ec.getStore(NAMESPACE).put(DEADLINE, deadline);
+	}
+
+	@Override
+	public void beforeEach(ExtensionContext ec) throws Exception {
+		// Looks in the class's store too.
+		Long inherited = ec.getStore(NAMESPACE).get(DEADLINE, Long.class);
+		long deadline = inherited == null ? suiteDeadline() : inherited;
+		if (System.currentTimeMillis() >= deadline) {
+			throw new AssertionError("The time budget was used up before this test could run.");
+		}
+		Optional<TimeBudget> budget = budget(ec.getTestMethod());
+		if (budget.isPresent()) {
+			deadline = Math.min(deadline, System.currentTimeMillis() + budget.get().unit().toMillis(budget.get().value()));
+		}
+		ec.getStore(NAMESPACE).put(DEADLINE, deadline);
+	}
+
+	/**
+	 * @return the deadline of the current test, in {@link System#currentTimeMillis()} time, or
+	 *         Long.MAX_VALUE if it has no budget.
+	 */
+	static long deadline(ExtensionContext ec) {
+		Long deadline = ec.getStore(NAMESPACE).get(DEADLINE, Long.class);
+		return deadline == null ? suiteDeadline() : deadline;
+	}
+
+	private static synchronized long suiteDeadline() {
+		if (SUITE_BUDGET_MILLIS <= 0) {
+			return Long.MAX_VALUE;
+		}
+		if (suiteDeadline == 0) {
+			suiteDeadline = System.currentTimeMillis() + SUITE_BUDGET_MILLIS;
+		}
+		return suiteDeadline;
+	}
+
+	private static Optional<TimeBudget> budget(Optional<? extends AnnotatedElement> element) {
+		return element.map(e -> e.getAnnotation(TimeBudget.class));
+	}
+
+}
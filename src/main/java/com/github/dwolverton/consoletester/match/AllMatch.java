@@ -17,6 +17,11 @@ public class AllMatch implements Match {
 
 	@Override
 	public Optional<MatchInfo> match(String s, int startIndex) {
+		return match((CharSequence) s, startIndex);
+	}
+
+	@Override
+	public Optional<MatchInfo> match(CharSequence s, int startIndex) {
 		int start = Integer.MAX_VALUE, end = -1;
 		for (Match m : matches) {
 			Optional<MatchInfo> result = m.match(s, startIndex);
@@ -36,7 +41,7 @@ public class AllMatch implements Match {
 	}
 
 	@Override
-	public Optional<MatchInfo> matchLast(String s, int startIndex) {
+	public Optional<MatchInfo> matchLast(CharSequence s, int startIndex) {
 		int start = Integer.MAX_VALUE, end = -1;
 		for (Match m : matches) {
 			Optional<MatchInfo> result = m.matchLast(s, startIndex);
@@ -59,6 +64,11 @@ public class AllMatch implements Match {
 
 	@Override
 	public String getPart(String s, int startIndex, int index) {
+		return getPart((CharSequence) s, startIndex, index);
+	}
+
+	@Override
+	public String getPart(CharSequence s, int startIndex, int index) {
 		throw new UnsupportedOperationException(
 				"Can't get part of an AllMatch");
 	}
@@ -17,6 +17,11 @@ public class AnyMatch implements Match {
 
 	@Override
 	public Optional<MatchInfo> match(String s, int startIndex) {
+		return match((CharSequence) s, startIndex);
+	}
+
+	@Override
+	public Optional<MatchInfo> match(CharSequence s, int startIndex) {
 		MatchInfo first = null;
 		for (Match m : matches) {
 			Optional<MatchInfo> result = m.match(s, startIndex);
@@ -32,7 +37,7 @@ public class AnyMatch implements Match {
 	}
 
 	@Override
-	public Optional<MatchInfo> matchLast(String s, int startIndex) {
+	public Optional<MatchInfo> matchLast(CharSequence s, int startIndex) {
 		Optional<MatchInfo> last = Optional.empty();
 		for (Match m : matches) {
 			Optional<MatchInfo> result = m.matchLast(s, startIndex);
@@ -48,6 +53,11 @@ public class AnyMatch implements Match {
 
 	@Override
 	public String getPart(String s, int startIndex, int index) {
+		return getPart((CharSequence) s, startIndex, index);
+	}
+
+	@Override
+	public String getPart(CharSequence s, int startIndex, int index) {
 		throw new UnsupportedOperationException(
 				"Can't get part of an AnyMatch");
 	}
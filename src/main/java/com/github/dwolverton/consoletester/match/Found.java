@@ -5,10 +5,10 @@ package com.github.dwolverton.consoletester.match;
  */
 public class Found {
 	
-	private String output;
+	private CharSequence output;
 	private MatchInfo matchInfo;
 	
-	public Found(String output, MatchInfo matchInfo) {
+	public Found(CharSequence output, MatchInfo matchInfo) {
 		super();
 		this.output = output;
 		this.matchInfo = matchInfo;
@@ -18,16 +18,16 @@ public class Found {
 	 * Return the string of output that matched.
 	 */
 	public String get() {
-		return output.substring(matchInfo.getStart(), matchInfo.getEnd());
+		return output.subSequence(matchInfo.getStart(), matchInfo.getEnd()).toString();
 	}
 	
 	/**
 	 * Return the entire line of output where the match was found.
 	 */
 	public String getLine() {
-		return output.substring(
+		return output.subSequence(
 				LineUtils.findLineStart(output, matchInfo.getStart()),
-				LineUtils.findLineEnd(output, matchInfo.getEnd()));
+				LineUtils.findLineEnd(output, matchInfo.getEnd())).toString();
 	}
 	
 	/**
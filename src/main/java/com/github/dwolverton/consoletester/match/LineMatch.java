@@ -20,10 +20,15 @@ public class LineMatch implements Match {
 
 	@Override
 	public Optional<MatchInfo> match(String s, int startIndex) {
+		return match((CharSequence) s, startIndex);
+	}
+
+	@Override
+	public Optional<MatchInfo> match(CharSequence s, int startIndex) {
 		Matcher m = LINE_SEPARATOR_PATTERN.matcher(s);
 		int lineStart = startIndex;
 		while (m.find(lineStart)) {
-			String line = s.substring(lineStart, m.start());
+			CharSequence line = s.subSequence(lineStart, m.start());
 			MatchInfo infoInLine = matchLine(line);
 			if (infoInLine != null) {
 				return Optional.of(offsetMatch(infoInLine, lineStart));
@@ -31,7 +36,7 @@ public class LineMatch implements Match {
 			lineStart = m.end();
 		}
 		
-		String line = s.substring(lineStart);
+		CharSequence line = s.subSequence(lineStart, s.length());
 		MatchInfo infoInLine = matchLine(line);
 		if (infoInLine != null) {
 			return Optional.of(offsetMatch(infoInLine, lineStart));
@@ -46,7 +51,7 @@ public class LineMatch implements Match {
 				infoInLine.getEnd() + lineStart);
 	}
 	
-	private MatchInfo matchLine(String line) {
+	private MatchInfo matchLine(CharSequence line) {
 		Optional<MatchInfo> mi = must.match(line, 0);
 		if (mi.isPresent()) {
 			if (mustNot == null || !mustNot.match(line, 0).isPresent()) {
@@ -58,6 +63,11 @@ public class LineMatch implements Match {
 
 	@Override
 	public String getPart(String s, int startIndex, int index) {
+		return getPart((CharSequence) s, startIndex, index);
+	}
+
+	@Override
+	public String getPart(CharSequence s, int startIndex, int index) {
 		return must.getPart(s, startIndex, index);
 	}
 
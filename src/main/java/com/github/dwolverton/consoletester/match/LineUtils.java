@@ -12,7 +12,7 @@ public class LineUtils {
 	public static final String LINE_START_PATTERN = "(?<=^|" + LINE_SEPARATOR_PATTERN_STR + ")";
 	public static final String LINE_END_PATTERN = "(?=$|" + LINE_SEPARATOR_PATTERN_STR + ")";
 	
-	public static int findLineStart(String block, int position) {
+	public static int findLineStart(CharSequence block, int position) {
 		int start = 0;
 		Matcher m = LINE_SEPARATOR_PATTERN.matcher(block);
 		while (m.find(start) && m.end() <= position) {
@@ -21,7 +21,7 @@ public class LineUtils {
 		return start;
 	}
 	
-	public static int findLineEnd(String block, int position) {
+	public static int findLineEnd(CharSequence block, int position) {
 		Matcher m = LINE_SEPARATOR_PATTERN.matcher(block);
 		if (m.find(position)) {
 			return m.start();
@@ -30,4 +30,27 @@ public class LineUtils {
 		}
 	}
 	
+	/**
+	 * @return the position just after the last line separator, or 0 if there is none. A
+	 *         trailing \r does not count, since it may turn out to be part of \r\n.
+	 */
+	public static int findEndOfCompleteLines(CharSequence block) {
+		return findEndOfCompleteLines(block, 0);
+	}
+	
+	/**
+	 * Like {@link #findEndOfCompleteLines(CharSequence)}, but only looks at or after from.
+	 * @return from if there is no line separator there.
+	 */
+	public static int findEndOfCompleteLines(CharSequence block, int from) {
+		int length = block.length();
+		for (int i = length - 1; i >= from; i--) {
+			char c = block.charAt(i);
+			if (c == '\n' || c == '\u2028' || c == '\u2029' || c == '\u0085' || (c == '\r' && i < length - 1)) {
+				return i + 1;
+			}
+		}
+		return from;
+	}
+	
 }
@@ -161,9 +161,25 @@ public interface Match {
 		return new AllMatch(matches2);
 	}
 	
+	/**
+	 * Find the first match in s at or after startIndex.
+	 */
 	Optional<MatchInfo> match(String s, int startIndex);
 	
+	/**
+	 * Find the first match in s at or after startIndex. Program output is searched through
+	 * this method so that it never needs to be copied into a String. Matches that are able
+	 * to search a CharSequence directly should override it.
+	 */
+	default Optional<MatchInfo> match(CharSequence s, int startIndex) {
+		return match(s.toString(), startIndex);
+	}
+	
 	default Optional<MatchInfo> matchLast(String s, int startIndex) {
+		return matchLast((CharSequence) s, startIndex);
+	}
+	
+	default Optional<MatchInfo> matchLast(CharSequence s, int startIndex) {
 		Optional<MatchInfo> last = Optional.empty();
 		Optional<MatchInfo> found = match(s, startIndex);
 		while (found.isPresent()) {
@@ -176,6 +192,10 @@ public interface Match {
 	
 	String getPart(String s, int startIndex, int index);
 	
+	default String getPart(CharSequence s, int startIndex, int index) {
+		return getPart(s.toString(), startIndex, index);
+	}
+	
 	String getExpectedMessage();
 
 	@Override
@@ -22,6 +22,11 @@ public class RegexMatch implements Match {
 
 	@Override
 	public Optional<MatchInfo> match(String s, int startIndex) {
+		return match((CharSequence) s, startIndex);
+	}
+
+	@Override
+	public Optional<MatchInfo> match(CharSequence s, int startIndex) {
 		java.util.regex.Matcher m = regex.matcher(s);
 		if (m.find(startIndex)) {
 			return Optional.of(new MatchInfo(this, m.start(), m.end()));
@@ -32,6 +37,11 @@ public class RegexMatch implements Match {
 
 	@Override
 	public String getPart(String s, int startIndex, int index) {
+		return getPart((CharSequence) s, startIndex, index);
+	}
+
+	@Override
+	public String getPart(CharSequence s, int startIndex, int index) {
 		java.util.regex.Matcher m = regex.matcher(s);
 		if (m.find(startIndex)) {
 			return m.group(index);
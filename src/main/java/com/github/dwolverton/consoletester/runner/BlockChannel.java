@@ -0,0 +1,109 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands finished {@link IOBlock}s from the program to the test.
+ *
+ * <p>This is a lock-free linked queue for many producers (the program thread and any threads
+ * it starts) and a single consumer (the test thread). On a machine with more than one CPU a
+ * waiting consumer spins briefly before parking, so a program that quickly reaches its next
+ * prompt does not require a context switch. With one CPU it parks right away.
+ */
+public class BlockChannel {
+
+	private static final boolean MULTIPROCESSOR = Runtime.getRuntime().availableProcessors() > 1;
+	private static final int SPINS = MULTIPROCESSOR ? 1000 : 0;
+	private static final int YIELDS = MULTIPROCESSOR ? 50 : 0;
+
+	private static final class Node {
+		IOBlock block;
+		volatile Node next;
+
+		Node(IOBlock block) {
+			this.block = block;
+		}
+	}
+
+	private final AtomicReference<Node> tail;
+	// Owned by the consumer.
+	private Node head;
+	private volatile Thread waiter;
+
+	public BlockChannel() {
+		head = new Node(null);
+		tail = new AtomicReference<>(head);
+	}
+
+	/**
+	 * Add a block. Never blocks.
+	 */
+	public void offer(IOBlock block) {
+		Node node = new Node(block);
+		tail.getAndSet(node).next = node;
+		Thread t = waiter;
+		if (t != null) {
+			LockSupport.unpark(t);
+		}
+	}
+
+	/**
+	 * @return the next block, or null if there is none right now.
+	 */
+	public IOBlock poll() {
+		Node next = head.next;
+		if (next == null) {
+			return null;
+		}
+		IOBlock block = next.block;
+		next.block = null;
+		head = next;
+		return block;
+	}
+
+	/**
+	 * Wait up to the given time for the next block.
+	 * @return the next block, or null if none arrived in time.
+	 */
+	public IOBlock poll(long timeout, TimeUnit unit) throws InterruptedException {
+		IOBlock block = poll();
+		for (int i = 0; block == null && i < SPINS + YIELDS; i++) {
+			if (i >= SPINS) {
+				Thread.yield();
+			}
+			block = poll();
+		}
+		if (block != null) {
+			return block;
+		}
+
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		waiter = Thread.currentThread();
+		try {
+			while ((block = poll()) == null) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return null;
+				}
+				LockSupport.parkNanos(this, remaining);
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+			}
+			return block;
+		} finally {
+			waiter = null;
+		}
+	}
+
+	/**
+	 * Discard all blocks.
+	 */
+	public void clear() {
+		while (poll() != null) {
+		}
+	}
+
+}
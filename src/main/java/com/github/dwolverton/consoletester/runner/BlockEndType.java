@@ -5,7 +5,10 @@ public enum BlockEndType {
 	INPUT("the program is waiting for user input"),
 	END("the program ended"),
 	HANG("the program is hung, perhaps in an infinite loop"),
-	EXCEPTION("the program terminated with an exception");
+	EXCEPTION("the program terminated with an exception"),
+	TIMEOUT("the time budget for the test was used up"),
+	/** Not the end of a block. The output so far, returned early by {@link ProgramRunner#nextBlock(java.util.function.Predicate)}. */
+	RUNNING("the program is still running");
 
 	private String actualMessage;
 
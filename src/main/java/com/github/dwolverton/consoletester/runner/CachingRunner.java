@@ -0,0 +1,239 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import com.github.dwolverton.consoletester.runner.Transcript.Entry;
+import com.github.dwolverton.consoletester.runner.Transcript.Kind;
+
+/**
+ * Runs main classes with a {@link Runner}, but reuses the output of earlier runs from a
+ * {@link ResultCache} when the program's bytecode is unchanged and it is given the same input.
+ *
+ * <p>Cached blocks are served for as long as the test gives the same input as a cached run.
+ * As soon as it doesn't, or the cached run stops short, the program is started for real, given
+ * the input so far and fast-forwarded to the same point. Runs that hang or run out of time are
+ * not cached, since that depends on timing. Programs must be deterministic for caching to be correct. Programs
+ * given as code rather than a main class are always run.
+ */
+public class CachingRunner implements ProgramRunner {
+
+	private final Runner runner;
+	private final ResultCache cache;
+	private String mainClassName;
+	private ClassLoader classes;
+	// Cached runs that agree with everything so far. Null when running for real.
+	private List<List<Entry>> candidates;
+	private ResultCache.Entry lastCandidate;
+	// Everything that has happened in this run so far.
+	private final List<Entry> history = new ArrayList<>();
+	private TempClassLoader liveLoader;
+	private IOBlock running;
+	private EchoSink echoSink = EchoSink.console();
+	private RunnerMetrics metrics;
+
+	public CachingRunner(Runner runner, ResultCache cache) {
+		this.runner = runner;
+		this.cache = cache;
+	}
+
+	@Override
+	public void start(Class<?> mainClass) {
+		start(mainClass.getName(), mainClass.getClassLoader());
+	}
+
+	@Override
+	public void start(String mainClassName) {
+		start(mainClassName, Runnables.class.getClassLoader());
+	}
+
+	@Override
+	public void start(Runnable program) {
+		reset(null, null);
+		runner.start(program);
+	}
+
+	private void start(String mainClassName, ClassLoader classes) {
+		reset(mainClassName, classes);
+		List<ResultCache.Entry> entries = cache.lookup(mainClassName, classes);
+		if (entries.isEmpty()) {
+			goLive();
+			return;
+		}
+		candidates = new ArrayList<>();
+		for (ResultCache.Entry entry : entries) {
+			List<Entry> recorded = entry.transcript.getEntries();
+			// Skip the START.
+			candidates.add(recorded.subList(1, recorded.size()));
+		}
+		lastCandidate = entries.get(0);
+	}
+
+	@Override
+	public IOBlock nextBlock() {
+		return nextBlock(null);
+	}
+
+	@Override
+	public IOBlock nextBlock(Predicate<CharSequence> enough) {
+		if (candidates != null) {
+			int pos = history.size();
+			List<Entry> first = candidates.get(0);
+			if (pos < first.size() && first.get(pos).getKind() == Kind.BLOCK
+					&& first.get(pos).getEndType() != BlockEndType.RUNNING) {
+				Entry block = first.get(pos);
+				// Only keep runs that agree with the block served.
+				candidates.removeIf(c -> pos >= c.size() || !sameEntry(c.get(pos), block));
+				history.add(block);
+				byte[] echo = block.getText().getBytes(StandardCharsets.UTF_8);
+				echoSink.output(echo, 0, echo.length);
+				return new IOBlock(block.getText(), block.getEndType());
+			}
+			goLive();
+		}
+		IOBlock block = enough == null ? runner.nextBlock() : runner.nextBlock(enough);
+		if (block.getEndType() == BlockEndType.RUNNING) {
+			running = block;
+		} else {
+			running = null;
+			history.add(new Entry(Kind.BLOCK, block.getEndType(), block.getOutput(), 0));
+		}
+		return block;
+	}
+
+	@Override
+	public void in(Object line) {
+		act(new Entry(Kind.INPUT, null, String.valueOf(line), 0));
+		if (candidates == null) {
+			runner.in(line);
+		} else {
+			echoSink.input(String.valueOf(line));
+		}
+	}
+
+	@Override
+	public void script(List<?> lines) {
+		if (lines.isEmpty()) {
+			return;
+		}
+		act(new Entry(Kind.SCRIPT, null, lines.stream().map(String::valueOf).collect(Collectors.joining("\n")), 0));
+		if (candidates == null) {
+			runner.script(lines);
+		}
+	}
+
+	@Override
+	public void terminate(boolean suppressStackTrace) {
+		if (candidates != null) {
+			cache.touch(lastCandidate);
+			candidates = null;
+			return;
+		}
+		runner.terminate(suppressStackTrace);
+		if (liveLoader != null) {
+			if (running != null) {
+				history.add(new Entry(Kind.BLOCK, running.getEndType(), running.getOutput(), 0));
+			}
+			if (history.stream().noneMatch(e -> e.getEndType() == BlockEndType.HANG
+					|| e.getEndType() == BlockEndType.TIMEOUT)) {
+				Transcript transcript = new Transcript();
+				transcript.add(Kind.START, null, mainClassName, 0);
+				for (Entry entry : history) {
+					transcript.add(entry.getKind(), entry.getEndType(), entry.getText(), 0);
+				}
+				cache.store(mainClassName, liveLoader.getLoadedClasses(), transcript);
+			}
+			liveLoader = null;
+		}
+		running = null;
+	}
+
+	@Override
+	public void setHangDetector(HangDetector hangDetector) {
+		runner.setHangDetector(hangDetector);
+	}
+
+	@Override
+	public void setEchoSink(EchoSink echoSink) {
+		this.echoSink = echoSink;
+		runner.setEchoSink(echoSink);
+	}
+
+	@Override
+	public void setMetrics(RunnerMetrics metrics) {
+		this.metrics = metrics;
+		runner.setMetrics(metrics);
+	}
+
+	@Override
+	public void setVirtualThreads(boolean virtualThreads) {
+		runner.setVirtualThreads(virtualThreads);
+	}
+
+	private void reset(String mainClassName, ClassLoader classes) {
+		this.mainClassName = mainClassName;
+		this.classes = classes;
+		candidates = null;
+		lastCandidate = null;
+		history.clear();
+		liveLoader = null;
+		running = null;
+	}
+
+	/**
+	 * The test gave input. Narrow the cached runs to those given the same input.
+	 */
+	private void act(Entry action) {
+		if (candidates != null) {
+			int pos = history.size();
+			candidates.removeIf(c -> pos >= c.size() || !sameEntry(c.get(pos), action));
+			if (candidates.isEmpty()) {
+				goLive();
+			}
+		}
+		history.add(action);
+	}
+
+	/**
+	 * Start the program for real and bring it to where the cached run was.
+	 */
+	private void goLive() {
+		candidates = null;
+		liveLoader = ReusableLoaders.newLoader(classes, mainClassName, runner.getReloadPolicy(), metrics);
+		// What has been served so far was already echoed.
+		runner.setEchoSink(EchoSink.none());
+		try {
+			try {
+				runner.start(Runnables.fromMainClass(liveLoader.loadClass(mainClassName)));
+			} catch (ClassNotFoundException e) {
+				throw new RuntimeException("Unable to load main class", e);
+			}
+			for (Entry entry : history) {
+				switch (entry.getKind()) {
+				case BLOCK:
+					runner.nextBlock();
+					break;
+				case INPUT:
+					runner.in(entry.getText());
+					break;
+				case SCRIPT:
+					runner.script(Arrays.asList(entry.getText().split("\n", -1)));
+					break;
+				default:
+					break;
+				}
+			}
+		} finally {
+			runner.setEchoSink(echoSink);
+		}
+	}
+
+	private static boolean sameEntry(Entry a, Entry b) {
+		return a.getKind() == b.getKind() && a.getEndType() == b.getEndType() && a.getText().equals(b.getText());
+	}
+
+}
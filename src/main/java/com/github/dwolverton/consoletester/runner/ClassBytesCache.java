@@ -0,0 +1,133 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The bytecode of classes, read once per JVM and shared by every {@link TempClassLoader}, so
+ * that starting a program doesn't read its classes again. Entries are kept by resource URL
+ * and are read again when the class file or jar changes.
+ */
+final class ClassBytesCache {
+
+	static final class Entry {
+		private final byte[] bytes;
+		private final String stamp;
+		private volatile String hash;
+
+		private Entry(byte[] bytes, String stamp) {
+			this.bytes = bytes;
+			this.stamp = stamp;
+		}
+
+		/**
+		 * @return the bytecode. Shared, so must not be changed.
+		 */
+		byte[] bytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return the SHA-256 hash of the bytecode.
+		 */
+		String hash() {
+			String h = hash;
+			if (h == null) {
+				h = hash = Hashing.sha256(bytes);
+			}
+			return h;
+		}
+	}
+
+	private static final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+	/** Cannot be instantiated. */
+	private ClassBytesCache() {}
+
+	/**
+	 * @return the class's bytecode as found by the loader, or null if there is none.
+	 */
+	static Entry read(ClassLoader loader, String className) throws IOException {
+		URL url = loader.getResource(resourceName(className));
+		return url == null ? null : read(url);
+	}
+
+	/**
+	 * @return the bytecode in the class file at the URL.
+	 */
+	static Entry read(URL url) throws IOException {
+		String key = url.toExternalForm();
+		String stamp = stamp(url);
+		Entry entry = cache.get(key);
+		if (entry != null && stamp != null && stamp.equals(entry.stamp)) {
+			return entry;
+		}
+		entry = new Entry(readAll(url), stamp);
+		if (stamp != null) {
+			cache.put(key, entry);
+		}
+		return entry;
+	}
+
+	static String resourceName(String className) {
+		return className.replace('.', '/') + ".class";
+	}
+
+	/**
+	 * @return something that changes when the resource does, or null if that can't be told.
+	 */
+	private static String stamp(URL url) {
+		try {
+			if (url.getProtocol().equals("file")) {
+				BasicFileAttributes attributes = Files.readAttributes(Paths.get(url.toURI()), BasicFileAttributes.class);
+				return attributes.lastModifiedTime().toMillis() + ":" + attributes.size();
+			}
+			URLConnection connection = url.openConnection();
+			long lastModified = connection.getLastModified();
+			if (lastModified == 0) {
+				return null;
+			}
+			return lastModified + ":" + connection.getContentLengthLong();
+		} catch (IOException | URISyntaxException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static byte[] readAll(URL url) throws IOException {
+		if (url.getProtocol().equals("file")) {
+			try {
+				return Files.readAllBytes(Paths.get(url.toURI()));
+			} catch (URISyntaxException | RuntimeException e) {
+				// Read it as a stream instead.
+			}
+		}
+		URLConnection connection = url.openConnection();
+		long length = connection.getContentLengthLong();
+		try (InputStream in = connection.getInputStream()) {
+			if (length >= 0 && length < Integer.MAX_VALUE) {
+				byte[] bytes = new byte[(int) length];
+				new DataInputStream(in).readFully(bytes);
+				return bytes;
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.toByteArray();
+		}
+	}
+
+}
@@ -0,0 +1,356 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The parts of a class file needed to tell what state a class keeps and what initializing it
+ * does: its fields, its methods' code and the classes it refers to.
+ */
+final class ClassFile {
+
+	static final int ACC_STATIC = 0x0008;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_SYNTHETIC = 0x1000;
+	static final int ACC_ENUM = 0x4000;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private static final int PUTSTATIC = 0xb3;
+	private static final int INVOKEVIRTUAL = 0xb6;
+	private static final int INVOKEINTERFACE = 0xb9;
+	private static final int INVOKEDYNAMIC = 0xba;
+	private static final int TABLESWITCH = 0xaa;
+	private static final int LOOKUPSWITCH = 0xab;
+	private static final int WIDE = 0xc4;
+	private static final int IINC = 0x84;
+
+	/** The length of each instruction, or 0 for those whose length varies. */
+	private static final byte[] INSTRUCTION_LENGTHS = instructionLengths();
+
+	/**
+	 * JDK classes whose methods only compute values, as far as the code that initializes a
+	 * class is concerned: boxing, strings, math and collections.
+	 */
+	private static final Set<String> PURE_CLASSES = new HashSet<>(Arrays.asList(
+			"java/lang/Object", "java/lang/Enum", "java/lang/Class", "java/lang/String",
+			"java/lang/StringBuilder", "java/lang/StringBuffer", "java/lang/Number", "java/lang/Integer",
+			"java/lang/Long", "java/lang/Short", "java/lang/Byte", "java/lang/Character", "java/lang/Boolean",
+			"java/lang/Float", "java/lang/Double", "java/lang/Math", "java/lang/StrictMath",
+			"java/math/BigInteger", "java/math/BigDecimal", "java/util/Arrays", "java/util/Collections",
+			"java/util/Objects", "java/util/Collection", "java/util/List", "java/util/Set", "java/util/Map",
+			"java/util/ArrayList", "java/util/LinkedList", "java/util/ArrayDeque", "java/util/HashMap",
+			"java/util/LinkedHashMap", "java/util/TreeMap", "java/util/EnumMap", "java/util/HashSet",
+			"java/util/LinkedHashSet", "java/util/TreeSet", "java/util/EnumSet"));
+
+	static final class Member {
+		final int access;
+		final String name;
+		final String descriptor;
+		/** Whether a field has a ConstantValue, which makes it a compile-time constant if static. */
+		final boolean constant;
+		/** A method's bytecode, or null if it has none. */
+		final byte[] code;
+
+		Member(int access, String name, String descriptor, boolean constant, byte[] code) {
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+			this.constant = constant;
+			this.code = code;
+		}
+
+		boolean isStatic() {
+			return (access & ACC_STATIC) != 0;
+		}
+
+		boolean isFinal() {
+			return (access & ACC_FINAL) != 0;
+		}
+	}
+
+	final int access;
+	/** The class's internal name, such as com/example/Thing. */
+	final String name;
+	final List<Member> fields = new ArrayList<>();
+	final List<Member> methods = new ArrayList<>();
+
+	// The constant pool. For each entry, its tag, its text if it is UTF-8, and its first
+	// and second indexes if it refers to other entries.
+	private final int[] tags;
+	private final String[] utf8;
+	private final int[] first;
+	private final int[] second;
+
+	private ClassFile(byte[] bytes) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+		in.readInt(); // magic
+		in.readUnsignedShort(); // minor version
+		in.readUnsignedShort(); // major version
+		int poolSize = in.readUnsignedShort();
+		tags = new int[poolSize];
+		utf8 = new String[poolSize];
+		first = new int[poolSize];
+		second = new int[poolSize];
+		for (int i = 1; i < poolSize; i++) {
+			int tag = in.readUnsignedByte();
+			tags[i] = tag;
+			switch (tag) {
+			case CONSTANT_UTF8:
+				utf8[i] = in.readUTF();
+				break;
+			case CONSTANT_LONG:
+			case CONSTANT_DOUBLE:
+				in.readLong();
+				i++; // Takes two entries.
+				break;
+			case 3: // Integer
+			case 4: // Float
+				in.readInt();
+				break;
+			case 9: // Fieldref
+			case 10: // Methodref
+			case 11: // InterfaceMethodref
+			case CONSTANT_NAME_AND_TYPE:
+			case 17: // Dynamic
+			case 18: // InvokeDynamic
+				first[i] = in.readUnsignedShort();
+				second[i] = in.readUnsignedShort();
+				break;
+			case CONSTANT_CLASS:
+			case 8: // String
+			case 16: // MethodType
+			case 19: // Module
+			case 20: // Package
+				first[i] = in.readUnsignedShort();
+				break;
+			case 15: // MethodHandle
+				in.readUnsignedByte();
+				first[i] = in.readUnsignedShort();
+				break;
+			default:
+				throw new IOException("Unknown constant pool tag " + tag);
+			}
+		}
+		access = in.readUnsignedShort();
+		name = className(in.readUnsignedShort());
+		in.readUnsignedShort(); // super class
+		int interfaces = in.readUnsignedShort();
+		for (int i = 0; i < interfaces; i++) {
+			in.readUnsignedShort();
+		}
+		readMembers(in, fields);
+		readMembers(in, methods);
+	}
+
+	private void readMembers(DataInputStream in, List<Member> members) throws IOException {
+		int count = in.readUnsignedShort();
+		for (int i = 0; i < count; i++) {
+			int memberAccess = in.readUnsignedShort();
+			String memberName = utf8[in.readUnsignedShort()];
+			String descriptor = utf8[in.readUnsignedShort()];
+			boolean constant = false;
+			byte[] code = null;
+			int attributes = in.readUnsignedShort();
+			for (int a = 0; a < attributes; a++) {
+				String attribute = utf8[in.readUnsignedShort()];
+				int length = in.readInt();
+				if ("Code".equals(attribute)) {
+					in.readUnsignedShort(); // max stack
+					in.readUnsignedShort(); // max locals
+					code = new byte[in.readInt()];
+					in.readFully(code);
+					in.skipBytes(length - 8 - code.length);
+				} else {
+					constant |= "ConstantValue".equals(attribute);
+					in.skipBytes(length);
+				}
+			}
+			members.add(new Member(memberAccess, memberName, descriptor, constant, code));
+		}
+	}
+
+	static ClassFile parse(byte[] bytes) throws IOException {
+		try {
+			return new ClassFile(bytes);
+		} catch (RuntimeException e) {
+			throw new IOException("Malformed class file", e);
+		}
+	}
+
+	boolean isEnum() {
+		return (access & ACC_ENUM) != 0;
+	}
+
+	/**
+	 * @return the binary names of the classes the class refers to, not counting arrays of
+	 *         primitives.
+	 */
+	List<String> referencedClasses() {
+		List<String> referenced = new ArrayList<>();
+		for (int i = 1; i < tags.length; i++) {
+			if (tags[i] != CONSTANT_CLASS) {
+				continue;
+			}
+			String className = utf8[first[i]];
+			if (className.startsWith("[")) {
+				// An array class, such as [[Lcom/example/Thing;
+				className = className.substring(className.lastIndexOf('[') + 1);
+				if (!className.startsWith("L")) {
+					continue;
+				}
+				className = className.substring(1, className.length() - 1);
+			}
+			referenced.add(className.replace('/', '.'));
+		}
+		return referenced;
+	}
+
+	/**
+	 * Tells whether initializing the class does anything that running it again wouldn't
+	 * repeat by restoring its static fields, such as printing, reading input, or changing
+	 * another class. Initializing may compute values with the JDK classes in
+	 * {@link #PURE_CLASSES}, construct objects of those classes or of this one, call this
+	 * class's own methods that do the same, and store values in this class's static fields.
+	 * @return what else the static initializer does, or null if nothing or there is none.
+	 */
+	String initializerSideEffect() {
+		for (Member method : methods) {
+			if (method.name.equals("<clinit>") && method.code != null) {
+				Set<Member> visited = new HashSet<>();
+				visited.add(method);
+				return sideEffect(method, visited);
+			}
+		}
+		return null;
+	}
+
+	private String sideEffect(Member method, Set<Member> visited) {
+		byte[] code = method.code;
+		int pc = 0;
+		while (pc < code.length) {
+			int opcode = code[pc] & 0xFF;
+			if (opcode == PUTSTATIC) {
+				String owner = className(first[index(code, pc)]);
+				if (!owner.equals(name)) {
+					return "sets a static field of " + owner.replace('/', '.');
+				}
+			} else if (opcode >= INVOKEVIRTUAL && opcode <= INVOKEINTERFACE) {
+				int ref = index(code, pc);
+				String owner = className(first[ref]);
+				int nameAndType = second[ref];
+				String methodName = utf8[first[nameAndType]];
+				String descriptor = utf8[second[nameAndType]];
+				if (owner.equals(name)) {
+					Member target = method(methodName, descriptor);
+					if (target == null || target.code == null) {
+						return "calls " + owner.replace('/', '.') + "." + methodName;
+					}
+					if (visited.add(target)) {
+						String effect = sideEffect(target, visited);
+						if (effect != null) {
+							return effect;
+						}
+					}
+				} else if (!(owner.startsWith("[") && methodName.equals("clone")) && !PURE_CLASSES.contains(owner)) {
+					return "calls " + owner.replace('/', '.') + "." + methodName;
+				}
+			} else if (opcode == INVOKEDYNAMIC) {
+				String methodName = utf8[first[second[index(code, pc)]]];
+				if (!methodName.equals("makeConcatWithConstants") && !methodName.equals("makeConcat")) {
+					// A lambda, which might be run by any call it is passed to.
+					return "creates a lambda";
+				}
+			}
+			pc += instructionLength(code, pc);
+		}
+		return null;
+	}
+
+	private Member method(String methodName, String descriptor) {
+		for (Member method : methods) {
+			if (method.name.equals(methodName) && method.descriptor.equals(descriptor)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	private String className(int classIndex) {
+		return utf8[first[classIndex]];
+	}
+
+	private static int index(byte[] code, int pc) {
+		return (code[pc + 1] & 0xFF) << 8 | (code[pc + 2] & 0xFF);
+	}
+
+	private static int instructionLength(byte[] code, int pc) {
+		int opcode = code[pc] & 0xFF;
+		int length = INSTRUCTION_LENGTHS[opcode];
+		if (length > 0) {
+			return length;
+		}
+		if (opcode == WIDE) {
+			return (code[pc + 1] & 0xFF) == IINC ? 6 : 4;
+		}
+		// The operands of a switch start at a multiple of 4 bytes from the start of the code.
+		int operands = (pc + 4) & ~3;
+		if (opcode == TABLESWITCH) {
+			int low = readInt(code, operands + 4);
+			int high = readInt(code, operands + 8);
+			return operands - pc + 12 + (high - low + 1) * 4;
+		}
+		if (opcode == LOOKUPSWITCH) {
+			return operands - pc + 8 + readInt(code, operands + 4) * 8;
+		}
+		throw new IllegalArgumentException("Unknown opcode " + opcode);
+	}
+
+	private static int readInt(byte[] code, int i) {
+		return (code[i] & 0xFF) << 24 | (code[i + 1] & 0xFF) << 16 | (code[i + 2] & 0xFF) << 8 | (code[i + 3] & 0xFF);
+	}
+
+	private static byte[] instructionLengths() {
+		byte[] lengths = new byte[256];
+		Arrays.fill(lengths, 0, 0xca, (byte) 1);
+		// Instructions with operands.
+		lengths[0x10] = 2; // bipush
+		lengths[0x11] = 3; // sipush
+		lengths[0x12] = 2; // ldc
+		lengths[0x13] = 3; // ldc_w
+		lengths[0x14] = 3; // ldc2_w
+		Arrays.fill(lengths, 0x15, 0x1a, (byte) 2); // iload to aload
+		Arrays.fill(lengths, 0x36, 0x3b, (byte) 2); // istore to astore
+		lengths[IINC] = 3;
+		Arrays.fill(lengths, 0x99, 0xa9, (byte) 3); // ifeq to jsr
+		lengths[0xa9] = 2; // ret
+		lengths[TABLESWITCH] = 0;
+		lengths[LOOKUPSWITCH] = 0;
+		Arrays.fill(lengths, 0xb2, 0xb9, (byte) 3); // getstatic to invokestatic
+		lengths[INVOKEINTERFACE] = 5;
+		lengths[INVOKEDYNAMIC] = 5;
+		lengths[0xbb] = 3; // new
+		lengths[0xbc] = 2; // newarray
+		lengths[0xbd] = 3; // anewarray
+		lengths[0xc0] = 3; // checkcast
+		lengths[0xc1] = 3; // instanceof
+		lengths[WIDE] = 0;
+		lengths[0xc5] = 4; // multianewarray
+		lengths[0xc6] = 3; // ifnull
+		lengths[0xc7] = 3; // ifnonnull
+		lengths[0xc8] = 5; // goto_w
+		lengths[0xc9] = 5; // jsr_w
+		return lengths;
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads a program's classes into its {@link TempClassLoader} on a small pool of background
+ * threads while the program starts, so that it doesn't wait for them the first time it uses
+ * them. Only classes in the main class's package, and its subpackages, are loaded this way.
+ *
+ * <p>Classes are loaded and linked, but not initialized, so the program sees no difference.
+ * The time spent loading them here isn't recorded in any run's {@link RunnerMetrics}. Only
+ * the latest requests are kept: when programs start faster than their classes can be
+ * loaded, the oldest requests are dropped, since those programs are likely to have loaded
+ * the classes themselves by then. Set the system property <code>consoletester.preload</code>
+ * to false to turn this off.
+ */
+final class ClassPreloader {
+
+	private static final boolean enabled = Boolean.parseBoolean(System.getProperty("consoletester.preload", "true"));
+	private static final int THREADS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+	private static final int MAX_QUEUED = 256;
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	private static final ExecutorService pool = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(MAX_QUEUED), r -> {
+				Thread t = new PreloadThread(r, "IOTester preload " + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}, new ThreadPoolExecutor.DiscardOldestPolicy());
+
+	/** Marks the threads that preload, so that their loading isn't recorded as a run's. */
+	private static class PreloadThread extends Thread {
+		PreloadThread(Runnable runnable, String name) {
+			super(runnable, name);
+		}
+	}
+
+	/** Cannot be instantiated. */
+	private ClassPreloader() {}
+
+	/**
+	 * @param classNames the program's classes, such as those found by a {@link StaticStateScan}.
+	 */
+	static void preload(TempClassLoader loader, String mainClassName, Collection<String> classNames) {
+		if (!enabled) {
+			return;
+		}
+		String mainPackage = packageOf(mainClassName);
+		for (String name : classNames) {
+			if (!name.equals(mainClassName) && inPackage(packageOf(name), mainPackage)) {
+				pool.execute(() -> load(loader, name));
+			}
+		}
+	}
+
+	/**
+	 * @return true if the current thread is preloading classes.
+	 */
+	static boolean isPreloading() {
+		return Thread.currentThread() instanceof PreloadThread;
+	}
+
+	private static void load(TempClassLoader loader, String name) {
+		try {
+			Class<?> c = Class.forName(name, false, loader);
+			// Loading alone doesn't link a class, and ClassLoader.resolveClass() doesn't either on
+			// HotSpot. Reflecting on its members does, which verifies it, without initializing
+			// it. This only loads the classes of the constructors' parameters, if they aren't
+			// loaded already, and caches the class's reflection data.
+			c.getDeclaredConstructors();
+		} catch (ClassNotFoundException | LinkageError | SecurityException e) {
+			// The program will get the same error if it uses the class.
+		}
+	}
+
+	private static String packageOf(String className) {
+		int dot = className.lastIndexOf('.');
+		return dot < 0 ? "" : className.substring(0, dot);
+	}
+
+	private static boolean inPackage(String packageName, String mainPackage) {
+		if (mainPackage.isEmpty()) {
+			return packageName.isEmpty();
+		}
+		return packageName.equals(mainPackage) || packageName.startsWith(mainPackage + ".");
+	}
+
+}
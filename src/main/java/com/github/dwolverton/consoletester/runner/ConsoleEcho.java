@@ -0,0 +1,199 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Copies what programs print, and the input they are given, to the real console on a
+ * background thread, so that a program never runs at the speed of a slow IDE or CI console.
+ * Writes are batched.
+ *
+ * <p>If the console falls too far behind, program output is dropped and a note of how much
+ * was left out is shown in its place. Other output is still shown until the console is four
+ * times as far behind, so that nothing can make the output waiting for it grow without limit.
+ * This only affects what is shown on the console, never the output that tests check.
+ */
+public final class ConsoleEcho {
+
+	private static final int BATCH_BYTES = 64 << 10;
+	private static final long SHUTDOWN_FLUSH_MILLIS = 1000;
+	/** How much further behind the console may fall for output that isn't droppable. */
+	private static final int HARD_LIMIT_FACTOR = 4;
+
+	/** Program output that was dropped. Shown as a note. */
+	private static class Gap {
+		long bytes;
+	}
+
+	private final OutputStream console;
+	private final long maxPending;
+	private final long hardMaxPending;
+	// Chunks of output (byte[]) and gaps waiting for the console. Guarded by itself.
+	private final ArrayDeque<Object> pending = new ArrayDeque<>();
+	private long pendingBytes;
+	private long queuedCount;
+	private long writtenCount;
+	private long droppedBytes;
+	private Thread thread;
+
+	/**
+	 * @param maxPending how many bytes of program output may wait for the console before
+	 *        more is dropped.
+	 */
+	public ConsoleEcho(OutputStream console, long maxPending) {
+		this.console = console;
+		this.maxPending = maxPending;
+		this.hardMaxPending = maxPending > Long.MAX_VALUE / HARD_LIMIT_FACTOR ? Long.MAX_VALUE
+				: maxPending * HARD_LIMIT_FACTOR;
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(SHUTDOWN_FLUSH_MILLIS)));
+	}
+
+	/**
+	 * @param droppable true for program output, which may be dropped if the console is behind.
+	 *        Other output is only dropped if it is much further behind.
+	 * @return a stream that echoes everything written to it. Never blocks.
+	 */
+	public OutputStream stream(boolean droppable) {
+		return new OutputStream() {
+			@Override
+			public void write(int b) {
+				enqueue(new byte[] { (byte) b }, droppable);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				if (len > 0) {
+					enqueue(Arrays.copyOfRange(b, off, off + len), droppable);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Echo program output. It is dropped if the console is too far behind.
+	 */
+	public void output(byte[] b, int off, int len) {
+		if (len > 0) {
+			enqueue(Arrays.copyOfRange(b, off, off + len), true);
+		}
+	}
+
+	/**
+	 * Echo a line. It is shown unless the console is very far behind.
+	 */
+	public void println(String line) {
+		enqueue((line + System.lineSeparator()).getBytes(Charset.defaultCharset()), false);
+	}
+
+	/**
+	 * Wait for everything echoed so far to reach the console.
+	 * @return false if it didn't in time.
+	 */
+	public boolean flush(long timeoutMillis) {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (pending) {
+			long target = queuedCount;
+			while (writtenCount < target) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return false;
+				}
+				try {
+					pending.wait(remaining);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * @return the total number of bytes of output that were not shown.
+	 */
+	public long getDroppedBytes() {
+		synchronized (pending) {
+			return droppedBytes;
+		}
+	}
+
+	private void enqueue(byte[] bytes, boolean droppable) {
+		synchronized (pending) {
+			if (pendingBytes + bytes.length > (droppable ? maxPending : hardMaxPending)) {
+				droppedBytes += bytes.length;
+				Object last = pending.peekLast();
+				if (last instanceof Gap) {
+					((Gap) last).bytes += bytes.length;
+				} else {
+					Gap gap = new Gap();
+					gap.bytes = bytes.length;
+					pending.add(gap);
+					queuedCount++;
+				}
+			} else {
+				pending.add(bytes);
+				pendingBytes += bytes.length;
+				queuedCount++;
+			}
+			if (thread == null) {
+				thread = new Thread(this::run, "IOTester echo");
+				thread.setDaemon(true);
+				thread.start();
+			}
+			pending.notifyAll();
+		}
+	}
+
+	private void run() {
+		BufferedOutputStream batch = new BufferedOutputStream(console, BATCH_BYTES);
+		ArrayDeque<Object> taken = new ArrayDeque<>();
+		while (true) {
+			synchronized (pending) {
+				while (pending.isEmpty()) {
+					try {
+						pending.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				// Take a batch. Later output can pile up while it is written.
+				long bytes = 0;
+				while (!pending.isEmpty() && bytes < BATCH_BYTES) {
+					Object next = pending.poll();
+					if (next instanceof byte[]) {
+						bytes += ((byte[]) next).length;
+					}
+					taken.add(next);
+				}
+				pendingBytes -= bytes;
+			}
+			int count = taken.size();
+			try {
+				Object next;
+				while ((next = taken.poll()) != null) {
+					if (next instanceof byte[]) {
+						batch.write((byte[]) next);
+					} else {
+						batch.write(("\n[IOTester: " + ((Gap) next).bytes
+								+ " bytes of output not shown because the console fell behind]\n")
+										.getBytes(Charset.defaultCharset()));
+					}
+				}
+				batch.flush();
+			} catch (IOException e) {
+				// Nowhere to report it. The tests are unaffected.
+				taken.clear();
+			}
+			synchronized (pending) {
+				writtenCount += count;
+				pending.notifyAll();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.github.dwolverton.consoletester.runner;
+
+/**
+ * See {@link EchoSink#console()}.
+ */
+final class ConsoleEchoSink implements EchoSink {
+
+	private final ConsoleEcho echo;
+
+	ConsoleEchoSink(ConsoleEcho echo) {
+		this.echo = echo;
+	}
+
+	@Override
+	public void output(byte[] b, int off, int len) {
+		echo.output(b, off, len);
+	}
+
+	@Override
+	public void input(String line) {
+		echo.println("«" + line + "»");
+	}
+
+	@Override
+	public void println(String line) {
+		echo.println(line);
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.github.dwolverton.consoletester.runner;
+
+/**
+ * Where a {@link Runner} shows what programs print and the input they are given, for anyone
+ * watching the tests. This is separate from the output that tests check, which is always
+ * captured in full.
+ *
+ * <p>Sinks may be called from program threads and the test thread at once.
+ */
+public interface EchoSink {
+
+	/**
+	 * Output from the program, encoded in UTF-8. The array must not be kept.
+	 */
+	void output(byte[] b, int off, int len);
+
+	/**
+	 * A line of input given to the program.
+	 */
+	void input(String line);
+
+	/**
+	 * A line of other information, such as the name of a test.
+	 */
+	void println(String line);
+
+	/**
+	 * Release any resources. Called once the sink is no longer used.
+	 */
+	default void close() {}
+
+	/**
+	 * @return a sink that shows nothing.
+	 */
+	static EchoSink none() {
+		return NoEchoSink.INSTANCE;
+	}
+
+	/**
+	 * @return a sink that shows everything on the console. See {@link ConsoleEcho}.
+	 */
+	static EchoSink console() {
+		return Runner.consoleSink();
+	}
+
+}
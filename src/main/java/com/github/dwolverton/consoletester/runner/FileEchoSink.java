@@ -0,0 +1,69 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the echo to a file, buffered. The file is complete once the sink is closed.
+ */
+public class FileEchoSink implements EchoSink {
+
+	private final OutputStream out;
+	private boolean failed;
+
+	/**
+	 * @param append true to add to the file rather than replace it.
+	 */
+	public FileEchoSink(Path file, boolean append) {
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE,
+					append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING));
+		} catch (IOException e) {
+			throw new UncheckedIOException("Unable to create echo file " + file, e);
+		}
+	}
+
+	@Override
+	public synchronized void output(byte[] b, int off, int len) {
+		if (failed) {
+			return;
+		}
+		try {
+			out.write(b, off, len);
+		} catch (IOException e) {
+			// The echo is only for people. Don't fail the test over it.
+			failed = true;
+		}
+	}
+
+	@Override
+	public void input(String line) {
+		println("«" + line + "»");
+	}
+
+	@Override
+	public void println(String line) {
+		byte[] bytes = (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+		output(bytes, 0, bytes.length);
+	}
+
+	@Override
+	public synchronized void close() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			// As above.
+		}
+	}
+
+}
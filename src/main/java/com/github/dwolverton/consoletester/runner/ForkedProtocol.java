@@ -0,0 +1,107 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The messages exchanged between a {@link ForkedRunner} and a {@link ForkedWorker} over the
+ * worker's stdin and stdout. Each message is a type byte followed by its fields.
+ */
+final class ForkedProtocol {
+
+	// Commands from the test JVM to the worker.
+	/**
+	 * Start a program: class name, spin, idle and max millis, deadline, virtual threads.
+	 * Replied to with STARTED or ERROR.
+	 */
+	static final byte START = 1;
+	/** Reply with the next block. */
+	static final byte NEXT = 2;
+	/** A line of input. */
+	static final byte INPUT = 3;
+	/** Terminate the program: suppress stack trace. Replied to with TERMINATED. */
+	static final byte TERMINATE = 4;
+	/** Lines of input to answer the program's next requests with: count, lines. */
+	static final byte SCRIPT = 5;
+
+	// Replies from the worker to the test JVM.
+	/** A block: end type, output. */
+	static final byte BLOCK = 11;
+	/** The program was terminated: whether its thread has stopped. */
+	static final byte TERMINATED = 12;
+	/** The program could not be started: whether it was an AssertionError, message. */
+	static final byte ERROR = 13;
+	/** The program was started. */
+	static final byte STARTED = 14;
+
+	/** Not sent. Stands for the end of the worker's stdout. */
+	static final byte EOF = -1;
+
+	/** Cannot be instantiated. */
+	private ForkedProtocol() {}
+
+	static class Reply {
+		final byte type;
+		final IOBlock block;
+		final boolean flag;
+		final String message;
+		/** The size of a block's output in UTF-8, as sent. */
+		final int blockBytes;
+
+		Reply(byte type, IOBlock block, boolean flag, String message) {
+			this(type, block, flag, message, 0);
+		}
+
+		Reply(byte type, IOBlock block, boolean flag, String message, int blockBytes) {
+			this.type = type;
+			this.block = block;
+			this.flag = flag;
+			this.message = message;
+			this.blockBytes = blockBytes;
+		}
+	}
+
+	static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		return readString(in, in.readInt());
+	}
+
+	private static String readString(DataInputStream in, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static void writeBlock(DataOutputStream out, IOBlock block) throws IOException {
+		out.writeByte(BLOCK);
+		out.writeByte(block.getEndType().ordinal());
+		writeString(out, block.getOutput());
+	}
+
+	static Reply readReply(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+		case BLOCK:
+			BlockEndType endType = BlockEndType.values()[in.readByte()];
+			int length = in.readInt();
+			return new Reply(type, new IOBlock(readString(in, length), endType), false, null, length);
+		case STARTED:
+			return new Reply(type, null, false, null);
+		case TERMINATED:
+			return new Reply(type, null, in.readBoolean(), null);
+		case ERROR:
+			boolean assertion = in.readBoolean();
+			return new Reply(type, null, assertion, readString(in));
+		default:
+			throw new IOException("Unknown reply from worker: " + type);
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+package com.github.dwolverton.consoletester.runner;
+
+import static com.github.dwolverton.consoletester.runner.ForkedProtocol.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import com.github.dwolverton.consoletester.runner.ForkedProtocol.Reply;
+import com.github.dwolverton.consoletester.runner.ForkedWorkerPool.Worker;
+
+/**
+ * Runs each program in a separate worker JVM from a {@link ForkedWorkerPool}. Programs that
+ * call System.exit(), leave threads running or change global state cannot affect the tests
+ * or each other.
+ *
+ * <p>Only main classes can be run this way, since other code cannot be sent to the worker.
+ * The worker's class path must include them.
+ */
+public class ForkedRunner implements ProgramRunner {
+
+	/** Extra time to wait for a worker beyond its own hang detection. */
+	private static final long WORKER_GRACE_MILLIS = 5000;
+
+	private final ForkedWorkerPool pool;
+	private HangDetector hangDetector = HangDetector.DEFAULT;
+	private boolean virtualThreads = Boolean.getBoolean("consoletester.virtualThreads");
+	private RunnerMetrics metrics = new RunnerMetrics();
+	private Worker worker;
+	// Whether the worker was discarded because it got stuck.
+	private boolean stuck;
+	private boolean ended;
+	private int blocks;
+
+	public ForkedRunner() {
+		this(ForkedWorkerPool.shared());
+	}
+
+	public ForkedRunner(ForkedWorkerPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public void start(Class<?> mainClass) {
+		start(mainClass.getName());
+	}
+
+	@Override
+	public synchronized void start(String mainClassName) {
+		if (worker != null) {
+			throw new RuntimeException("IOTester Runner was already started. It must be terminated before starting again.");
+		}
+		worker = pool.acquire();
+		stuck = false;
+		ended = false;
+		blocks = 0;
+		try {
+			DataOutputStream out = worker.commands();
+			out.writeByte(START);
+			out.writeUTF(mainClassName);
+			out.writeLong(hangDetector.getSpinMillis());
+			out.writeLong(hangDetector.getIdleMillis());
+			out.writeLong(hangDetector.getMaxMillis());
+			out.writeLong(hangDetector.getDeadlineMillis());
+			out.writeBoolean(virtualThreads);
+			out.flush();
+		} catch (IOException e) {
+			discardWorker();
+			throw new RuntimeException("Unable to communicate with worker JVM", e);
+		}
+		Reply reply = worker.receive(WORKER_GRACE_MILLIS);
+		if (reply == null || reply.type != STARTED) {
+			discardWorker();
+			if (reply != null && reply.type == ERROR) {
+				if (reply.flag) {
+					throw new AssertionError(reply.message);
+				}
+				throw new RuntimeException(reply.message);
+			}
+			throw new RuntimeException("Worker JVM failed to start " + mainClassName);
+		}
+	}
+
+	@Override
+	public void start(Runnable program) {
+		throw new UnsupportedOperationException("A forked runner can only run main classes.");
+	}
+
+	@Override
+	public IOBlock nextBlock() {
+		if (ended) {
+			// The worker may be gone already, e.g. after System.exit().
+			return new IOBlock("", BlockEndType.END);
+		}
+		if (worker == null) {
+			// Either the worker was discarded after it got stuck, or nothing is running.
+			return new IOBlock("", stuck ? BlockEndType.HANG : BlockEndType.END);
+		}
+		try {
+			DataOutputStream out = worker.commands();
+			out.writeByte(NEXT);
+			out.flush();
+		} catch (IOException e) {
+			// Expected if the program exited. The reply tells us what happened.
+		}
+		long waitStart = System.nanoTime();
+		Reply reply = worker.receive(hangDetector.remainingMillis() + WORKER_GRACE_MILLIS);
+		metrics.getNextBlockWaitNanos().record(System.nanoTime() - waitStart);
+		if (reply == null) {
+			// The worker itself is stuck. Nothing it could send now is trustworthy.
+			discardWorker();
+			stuck = true;
+			return new IOBlock("", System.currentTimeMillis() >= hangDetector.getDeadlineMillis()
+					? BlockEndType.TIMEOUT : BlockEndType.HANG);
+		}
+		if (reply.type == EOF) {
+			ended = true;
+			return new IOBlock("", BlockEndType.END);
+		}
+		if (reply.block.getEndType() == BlockEndType.END || reply.block.getEndType() == BlockEndType.EXCEPTION) {
+			ended = true;
+		}
+		blocks++;
+		metrics.getBlockBytes().record(reply.blockBytes);
+		return reply.block;
+	}
+
+	@Override
+	public void in(Object line) {
+		Worker w = worker;
+		if (w == null) {
+			// Nothing is listening.
+			return;
+		}
+		try {
+			DataOutputStream out = w.commands();
+			out.writeByte(INPUT);
+			writeString(out, String.valueOf(line));
+			out.flush();
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to communicate with worker JVM", e);
+		}
+	}
+
+	@Override
+	public void script(List<?> lines) {
+		Worker w = worker;
+		if (w == null) {
+			return;
+		}
+		try {
+			DataOutputStream out = w.commands();
+			out.writeByte(SCRIPT);
+			out.writeInt(lines.size());
+			for (Object line : lines) {
+				writeString(out, String.valueOf(line));
+			}
+			out.flush();
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to communicate with worker JVM", e);
+		}
+	}
+
+	@Override
+	public synchronized void terminate(boolean suppressStackTrace) {
+		if (worker == null) {
+			return;
+		}
+		metrics.getBlocksPerRun().record(blocks);
+		boolean stopped = false;
+		try {
+			DataOutputStream out = worker.commands();
+			out.writeByte(TERMINATE);
+			out.writeBoolean(suppressStackTrace);
+			out.flush();
+			Reply reply;
+			do {
+				// Skip any block that was sent as the program exited.
+				reply = worker.receive(WORKER_GRACE_MILLIS);
+			} while (reply != null && reply.type == BLOCK);
+			stopped = reply != null && reply.type == TERMINATED && reply.flag;
+		} catch (IOException e) {
+			// The worker is gone.
+		}
+		pool.release(worker, stopped);
+		worker = null;
+	}
+
+	@Override
+	public void setHangDetector(HangDetector hangDetector) {
+		this.hangDetector = hangDetector;
+	}
+
+	@Override
+	public void setEchoSink(EchoSink echoSink) {
+		// Workers echo to their own stderr.
+	}
+
+	/**
+	 * Only what can be seen from this JVM is recorded: waits, block sizes and counts.
+	 */
+	@Override
+	public void setMetrics(RunnerMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	private void discardWorker() {
+		pool.release(worker, false);
+		worker = null;
+	}
+
+}
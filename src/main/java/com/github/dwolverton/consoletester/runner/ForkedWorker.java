@@ -0,0 +1,163 @@
+package com.github.dwolverton.consoletester.runner;
+
+import static com.github.dwolverton.consoletester.runner.ForkedProtocol.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The main class of a worker JVM started by {@link ForkedWorkerPool}. It runs programs with
+ * an ordinary {@link Runner} as directed by a {@link ForkedRunner} in the test JVM, using this
+ * JVM's stdin and stdout to communicate. See {@link ForkedProtocol}.
+ */
+public class ForkedWorker {
+
+	private static final long STOP_WAIT_MILLIS = 200;
+
+	private final DataInputStream commands;
+	private final DataOutputStream replies;
+	private final Runner runner = new Runner();
+	private volatile boolean programRunning;
+	private volatile boolean shuttingDown;
+
+	private ForkedWorker(DataInputStream commands, DataOutputStream replies) {
+		this.commands = commands;
+		this.replies = replies;
+	}
+
+	public static void main(String[] args) {
+		DataInputStream commands = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+		DataOutputStream replies = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+		// stdout is reserved for replies. Programs' output is still echoed, just on stderr.
+		System.setOut(System.err);
+		Runner.init();
+
+		ForkedWorker worker = new ForkedWorker(commands, replies);
+		Runtime.getRuntime().addShutdownHook(new Thread(worker::programExited));
+		try {
+			worker.run();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		// The test JVM is done with this worker. Don't let leftover program threads keep it alive.
+		worker.shuttingDown = true;
+		System.exit(0);
+	}
+
+	private void run() throws IOException {
+		while (true) {
+			byte command;
+			try {
+				command = commands.readByte();
+			} catch (EOFException e) {
+				return;
+			}
+			switch (command) {
+			case START:
+				start(commands.readUTF(), new HangDetector(commands.readLong(), commands.readLong(), commands.readLong())
+							.withDeadline(commands.readLong()),
+						commands.readBoolean());
+				break;
+			case NEXT:
+				IOBlock block = runner.nextBlock();
+				if (block.getEndType() == BlockEndType.END || block.getEndType() == BlockEndType.EXCEPTION) {
+					programRunning = false;
+				}
+				synchronized (replies) {
+					writeBlock(replies, block);
+					replies.flush();
+				}
+				break;
+			case INPUT:
+				runner.in(readString(commands));
+				break;
+			case SCRIPT:
+				int count = commands.readInt();
+				List<String> lines = new ArrayList<>(count);
+				for (int i = 0; i < count; i++) {
+					lines.add(readString(commands));
+				}
+				runner.script(lines);
+				break;
+			case TERMINATE:
+				boolean suppressStackTrace = commands.readBoolean();
+				ProgramThreads.Execution execution = runner.programExecution();
+				programRunning = false;
+				runner.terminate(suppressStackTrace);
+				synchronized (replies) {
+					replies.writeByte(TERMINATED);
+					replies.writeBoolean(stopped(execution));
+					replies.flush();
+				}
+				break;
+			default:
+				throw new IOException("Unknown command: " + command);
+			}
+		}
+	}
+
+	private void start(String mainClassName, HangDetector hangDetector, boolean virtualThreads) throws IOException {
+		runner.setHangDetector(hangDetector);
+		runner.setVirtualThreads(virtualThreads);
+		try {
+			runner.start(mainClassName);
+			programRunning = true;
+			synchronized (replies) {
+				replies.writeByte(STARTED);
+				replies.flush();
+			}
+		} catch (RuntimeException | AssertionError e) {
+			synchronized (replies) {
+				replies.writeByte(ERROR);
+				replies.writeBoolean(e instanceof AssertionError);
+				writeString(replies, String.valueOf(e.getMessage()));
+				replies.flush();
+			}
+		}
+	}
+
+	/**
+	 * Give a terminated program a moment to stop. If it doesn't, the worker is not reused.
+	 */
+	private static boolean stopped(ProgramThreads.Execution execution) {
+		if (execution == null) {
+			return true;
+		}
+		Object event = JfrEvents.beginTerminate();
+		boolean stopped = false;
+		try {
+			stopped = execution.join(STOP_WAIT_MILLIS);
+		} catch (InterruptedException e) {
+			// Not stopped.
+		}
+		JfrEvents.endTerminate(event, stopped);
+		return stopped;
+	}
+
+	/**
+	 * The program called System.exit(). Report the end of the program before the JVM goes away.
+	 */
+	private void programExited() {
+		if (shuttingDown || !programRunning) {
+			return;
+		}
+		try {
+			synchronized (replies) {
+				writeBlock(replies, runner.endBlock(BlockEndType.END));
+				replies.flush();
+			}
+		} catch (IOException e) {
+			// The test JVM is gone.
+		}
+	}
+
+}
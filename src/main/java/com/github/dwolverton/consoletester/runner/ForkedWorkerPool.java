@@ -0,0 +1,197 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.github.dwolverton.consoletester.runner.ForkedProtocol.Reply;
+
+/**
+ * A pool of warm worker JVMs for {@link ForkedRunner}. Starting a JVM for every test is slow,
+ * so workers are started ahead of time and reused for several programs before being replaced.
+ * A worker whose program could not be stopped, or that exited, is never reused.
+ */
+public class ForkedWorkerPool implements AutoCloseable {
+
+	private static ForkedWorkerPool shared;
+
+	private final int size;
+	private final int maxRunsPerWorker;
+	private final List<String> command;
+	private final ConcurrentLinkedQueue<Worker> idle = new ConcurrentLinkedQueue<>();
+	// Workers running programs. Guarded by this.
+	private int inUse;
+	private volatile boolean closed;
+
+	/**
+	 * @param size number of workers to keep, counting those running programs. Any that aren't
+	 *        running programs are kept ready.
+	 * @param maxRunsPerWorker number of programs a worker runs before it is replaced.
+	 */
+	public ForkedWorkerPool(int size, int maxRunsPerWorker) {
+		this(size, maxRunsPerWorker, System.getProperty("java.class.path"), Collections.emptyList());
+	}
+
+	/**
+	 * @param size number of workers to keep, counting those running programs. Any that aren't
+	 *        running programs are kept ready.
+	 * @param maxRunsPerWorker number of programs a worker runs before it is replaced.
+	 * @param classPath class path of the worker JVMs, which must include the programs under
+	 *        test and this library.
+	 * @param jvmArgs additional arguments for the worker JVMs, such as memory settings.
+	 */
+	public ForkedWorkerPool(int size, int maxRunsPerWorker, String classPath, List<String> jvmArgs) {
+		this.size = size;
+		this.maxRunsPerWorker = maxRunsPerWorker;
+		command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(jvmArgs);
+		command.add("-cp");
+		command.add(classPath);
+		command.add(ForkedWorker.class.getName());
+		Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+		refill();
+	}
+
+	/**
+	 * A pool shared by the whole test JVM, configured by the system properties
+	 * <code>consoletester.fork.poolSize</code> (default: number of processors) and
+	 * <code>consoletester.fork.maxRuns</code> (default: 50).
+	 */
+	public static synchronized ForkedWorkerPool shared() {
+		if (shared == null) {
+			shared = new ForkedWorkerPool(
+					Integer.getInteger("consoletester.fork.poolSize", Runtime.getRuntime().availableProcessors()),
+					Integer.getInteger("consoletester.fork.maxRuns", 50));
+		}
+		return shared;
+	}
+
+	synchronized Worker acquire() {
+		if (closed) {
+			throw new IllegalStateException("Worker pool is closed.");
+		}
+		Worker worker;
+		do {
+			worker = idle.poll();
+		} while (worker != null && !worker.isAlive());
+		if (worker == null) {
+			worker = spawn();
+		}
+		worker.runs++;
+		inUse++;
+		refill();
+		return worker;
+	}
+
+	/**
+	 * @param reusable false if the worker may be in a bad state and should not run more programs.
+	 */
+	synchronized void release(Worker worker, boolean reusable) {
+		inUse--;
+		if (reusable && !closed && worker.runs < maxRunsPerWorker && worker.isAlive() && idle.size() + inUse < size) {
+			idle.offer(worker);
+		} else {
+			worker.destroy();
+			refill();
+		}
+	}
+
+	/**
+	 * Stop all idle workers. Workers in use are stopped when released.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		Worker worker;
+		while ((worker = idle.poll()) != null) {
+			worker.destroy();
+		}
+	}
+
+	private synchronized void refill() {
+		while (!closed && idle.size() + inUse < size) {
+			idle.offer(spawn());
+		}
+	}
+
+	private Worker spawn() {
+		try {
+			Process process = new ProcessBuilder(command)
+					.redirectError(ProcessBuilder.Redirect.INHERIT)
+					.start();
+			return new Worker(process);
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to start worker JVM", e);
+		}
+	}
+
+	static class Worker {
+		private final Process process;
+		private final DataOutputStream commands;
+		private final BlockingQueue<Reply> replies = new LinkedBlockingQueue<>();
+		private int runs;
+
+		private Worker(Process process) {
+			this.process = process;
+			commands = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+			DataInputStream in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+			Thread reader = new Thread(() -> {
+				try {
+					while (true) {
+						replies.add(ForkedProtocol.readReply(in));
+					}
+				} catch (IOException e) {
+					replies.add(new Reply(ForkedProtocol.EOF, null, false, null));
+				}
+			}, "IOTester worker reader");
+			reader.setDaemon(true);
+			reader.start();
+		}
+
+		DataOutputStream commands() {
+			return commands;
+		}
+
+		/**
+		 * @return the next reply, or null if there was none in time.
+		 */
+		Reply receive(long timeoutMillis) {
+			try {
+				Reply reply = replies.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+				if (reply != null && reply.type == ForkedProtocol.EOF) {
+					// Leave it for anyone else who asks.
+					replies.add(reply);
+				}
+				return reply;
+			} catch (InterruptedException e) {
+				throw new RuntimeException(
+						"Unexpected interrupt of test thread. This is likely a problem with the test, not your code.");
+			}
+		}
+
+		boolean isAlive() {
+			try {
+				process.exitValue();
+				return false;
+			} catch (IllegalThreadStateException e) {
+				return true;
+			}
+		}
+
+		void destroy() {
+			process.destroyForcibly();
+		}
+	}
+
+}
@@ -0,0 +1,192 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides when a program that has not finished a block should be considered hung.
+ *
+ * <p>Rather than waiting a fixed amount of time, the program thread is sampled through
+ * {@link ThreadMXBean}:
+ * <ul>
+ * <li>Output and reading input count as progress and restart the clock.</li>
+ * <li>A thread that burns CPU without making progress is spinning, likely in an infinite
+ * loop. It is hung once it has used <code>spinMillis</code> of CPU time. Measuring CPU time
+ * rather than wall time keeps this fair on a heavily loaded machine. Allocating memory isn't
+ * progress, since many infinite loops allocate. Tests of programs that compute for long
+ * without printing need a larger <code>spinMillis</code> than the default.</li>
+ * <li>A thread that is sleeping, waiting or blocked without making progress is hung after
+ * <code>idleMillis</code> of wall time.</li>
+ * <li>No matter what, a block never takes longer than <code>maxMillis</code>.</li>
+ * </ul>
+ * A detector can also have a deadline, such as the end of a test's time budget. Past it,
+ * every block ends right away.
+ * If the JVM does not support thread CPU time, every block simply gets <code>idleMillis</code>.
+ */
+public class HangDetector {
+
+	public static final HangDetector DEFAULT = new HangDetector(200, 3000, 10000);
+
+	static final long SAMPLE_MILLIS = 10;
+
+	private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	private static final boolean cpuTimeSupported = enableCpuTime();
+
+	private final long spinMillis;
+	private final long idleMillis;
+	private final long maxMillis;
+	private final long spinNanos;
+	private final long idleNanos;
+	private final long maxNanos;
+	private final long deadlineMillis;
+
+	/**
+	 * @param spinMillis CPU time a thread may use without making progress.
+	 * @param idleMillis wall time a thread may sit waiting without making progress.
+	 * @param maxMillis ceiling on the wall time of a single block.
+	 */
+	public HangDetector(long spinMillis, long idleMillis, long maxMillis) {
+		this(spinMillis, idleMillis, maxMillis, Long.MAX_VALUE);
+	}
+
+	private HangDetector(long spinMillis, long idleMillis, long maxMillis, long deadlineMillis) {
+		this.deadlineMillis = deadlineMillis;
+		this.spinMillis = spinMillis;
+		this.idleMillis = idleMillis;
+		this.maxMillis = Math.max(maxMillis, idleMillis);
+		this.spinNanos = TimeUnit.MILLISECONDS.toNanos(this.spinMillis);
+		this.idleNanos = TimeUnit.MILLISECONDS.toNanos(this.idleMillis);
+		this.maxNanos = TimeUnit.MILLISECONDS.toNanos(this.maxMillis);
+	}
+
+	public long getSpinMillis() {
+		return spinMillis;
+	}
+
+	public long getIdleMillis() {
+		return idleMillis;
+	}
+
+	public long getMaxMillis() {
+		return maxMillis;
+	}
+
+	/**
+	 * @return the deadline, in {@link System#currentTimeMillis()} time, or Long.MAX_VALUE if
+	 *         there is none.
+	 */
+	public long getDeadlineMillis() {
+		return deadlineMillis;
+	}
+
+	/**
+	 * @return a copy of this detector that ends every block once the given time, in
+	 *         {@link System#currentTimeMillis()} time, has passed.
+	 */
+	public HangDetector withDeadline(long deadlineMillis) {
+		return new HangDetector(spinMillis, idleMillis, maxMillis, deadlineMillis);
+	}
+
+	/**
+	 * @return the longest the current block can take, considering the deadline.
+	 */
+	long remainingMillis() {
+		return Math.max(0, Math.min(maxMillis, deadlineMillis - System.currentTimeMillis()));
+	}
+
+	/**
+	 * Start watching a program for the duration of one block.
+	 * @param progress a counter that increases when the program makes visible progress,
+	 *        such as the number of bytes of output.
+	 */
+	Watch watch(ProgramThreads.Execution execution, LongSupplier progress) {
+		return new Watch(execution, progress);
+	}
+
+	class Watch {
+		private final ProgramThreads.Execution execution;
+		private final LongSupplier progress;
+		private final long startTime;
+		private Thread thread;
+		private long lastProgressTime;
+		private long lastProgress;
+		private long cpuAtLastProgress;
+
+		private Watch(ProgramThreads.Execution execution, LongSupplier progress) {
+			this.execution = execution;
+			this.progress = progress;
+			this.startTime = System.nanoTime();
+			this.lastProgressTime = startTime;
+			this.lastProgress = progress.getAsLong();
+		}
+
+		boolean isOutOfTime() {
+			return System.currentTimeMillis() >= deadlineMillis;
+		}
+
+		boolean isHung() {
+			long now = System.nanoTime();
+			if (now - startTime >= maxNanos) {
+				return true;
+			}
+			if (execution == null || execution.isDone()) {
+				// The block for the end of the program is on its way.
+				return false;
+			}
+			if (thread == null) {
+				thread = execution.thread();
+				if (thread == null) {
+					// Still waiting for a thread to run on.
+					return false;
+				}
+				// Pooled threads have run other programs, so only count from here.
+				cpuAtLastProgress = cpuTime(thread);
+			}
+
+			long cpu = cpuTime(thread);
+			long currentProgress = progress.getAsLong();
+			if (currentProgress != lastProgress) {
+				lastProgress = currentProgress;
+				lastProgressTime = now;
+				cpuAtLastProgress = cpu;
+				return false;
+			}
+
+			if (cpu >= 0 && cpuAtLastProgress >= 0) {
+				if (cpu - cpuAtLastProgress >= spinNanos) {
+					return true;
+				}
+				Thread.State state = thread.getState();
+				if (state == Thread.State.RUNNABLE) {
+					// Still running, but maybe not getting much CPU. Allow up to the ceiling.
+					return false;
+				}
+			}
+			return now - lastProgressTime >= idleNanos;
+		}
+	}
+
+	private static long cpuTime(Thread thread) {
+		if (!cpuTimeSupported || thread == null) {
+			return -1;
+		}
+		return threadBean.getThreadCpuTime(thread.getId());
+	}
+
+	private static boolean enableCpuTime() {
+		try {
+			if (!threadBean.isThreadCpuTimeSupported()) {
+				return false;
+			}
+			if (!threadBean.isThreadCpuTimeEnabled()) {
+				threadBean.setThreadCpuTimeEnabled(true);
+			}
+			return true;
+		} catch (UnsupportedOperationException | SecurityException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+final class Hashing {
+
+	/** Cannot be instantiated. */
+	private Hashing() {}
+
+	/**
+	 * @return the SHA-256 hash of the bytes as hex.
+	 */
+	static String sha256(byte[] bytes) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e); // Every JVM has SHA-256.
+		}
+	}
+
+}
@@ -2,16 +2,26 @@ package com.github.dwolverton.consoletester.runner;
 
 public class IOBlock {
 
-	private String output;
+	private CharSequence output;
 	private BlockEndType endType;
 
-	public IOBlock(String output, BlockEndType endType) {
+	public IOBlock(CharSequence output, BlockEndType endType) {
 		super();
 		this.output = output;
 		this.endType = endType;
 	}
 
+	/**
+	 * @return a copy of the block's output. Use {@link #getOutputView()} to avoid copying.
+	 */
 	public String getOutput() {
+		return output.toString();
+	}
+
+	/**
+	 * @return the block's output without copying it.
+	 */
+	public CharSequence getOutputView() {
 		return output;
 	}
 
@@ -0,0 +1,225 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Carries the bytes the test types into the program's System.in.
+ *
+ * <p>Bytes are appended to a linked list of fixed-size chunks, so there is no limit on how
+ * much can be written before the program reads it and the writer never blocks. Handing
+ * bytes from the writer to the reader only needs volatile reads and writes. On a machine
+ * with more than one CPU a waiting reader spins briefly before parking, so a quick reply from
+ * the test does not require a context switch. With one CPU spinning would only take time from
+ * the writer, so the reader parks right away.
+ *
+ * <p>It is designed for a single writer and a single reader. The locks only guard against a
+ * program that reads from several threads, and are otherwise uncontended.
+ */
+public class InputChannel extends InputStream {
+
+	private static final int CHUNK_SIZE = 4096;
+	private static final boolean MULTIPROCESSOR = Runtime.getRuntime().availableProcessors() > 1;
+	private static final int SPINS = MULTIPROCESSOR ? 1000 : 0;
+	private static final int YIELDS = MULTIPROCESSOR ? 50 : 0;
+
+	private static final class Chunk {
+		final byte[] data = new byte[CHUNK_SIZE];
+		volatile int written;
+		volatile Chunk next;
+	}
+
+	private final ReentrantLock writeLock = new ReentrantLock();
+	private final ReentrantLock readLock = new ReentrantLock();
+
+	// Owned by the writer.
+	private Chunk tail;
+	// Owned by the reader.
+	private Chunk head;
+	private int readPos;
+
+	private volatile Thread waiter;
+	private volatile boolean closed;
+
+	public InputChannel() {
+		tail = head = new Chunk();
+	}
+
+	/**
+	 * Append bytes for the program to read. Never blocks.
+	 */
+	public void write(byte[] b, int off, int len) {
+		writeLock.lock();
+		try {
+			while (len > 0) {
+				int written = tail.written;
+				if (written == CHUNK_SIZE) {
+					Chunk next = new Chunk();
+					tail.next = next;
+					tail = next;
+					continue;
+				}
+				int n = Math.min(len, CHUNK_SIZE - written);
+				System.arraycopy(b, off, tail.data, written, n);
+				tail.written = written + n;
+				off += n;
+				len -= n;
+			}
+		} finally {
+			writeLock.unlock();
+		}
+		signal();
+	}
+
+	public void write(byte[] b) {
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public int read() throws InterruptedIOException {
+		readLock.lock();
+		try {
+			while (true) {
+				// Read before looking for data, so anything written before closing is seen.
+				boolean wasClosed = closed;
+				if (readPos == CHUNK_SIZE && head.next != null) {
+					head = head.next;
+					readPos = 0;
+				}
+				if (readPos < head.written) {
+					return head.data[readPos++] & 0xFF;
+				}
+				if (wasClosed) {
+					return -1;
+				}
+				await();
+			}
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws InterruptedIOException {
+		if (len == 0) {
+			return 0;
+		}
+		readLock.lock();
+		try {
+			while (true) {
+				int n = drain(b, off, len);
+				if (n > 0) {
+					return n;
+				}
+				if (closed) {
+					// Pick up anything written just before closing.
+					n = drain(b, off, len);
+					return n > 0 ? n : -1;
+				}
+				await();
+			}
+		} finally {
+			readLock.unlock();
+		}
+	}
+
+	@Override
+	public int available() {
+		int available = 0;
+		Chunk chunk = head;
+		int pos = readPos;
+		while (chunk != null) {
+			available += chunk.written - pos;
+			chunk = chunk.next;
+			pos = 0;
+		}
+		return available;
+	}
+
+	/**
+	 * After closing, the reader gets any remaining bytes and then the end of the stream.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		signal();
+	}
+
+	/**
+	 * Discard any unread bytes and reopen the channel so it can be used again. Only call this
+	 * when nothing is reading.
+	 */
+	public void reset() {
+		writeLock.lock();
+		readLock.lock();
+		try {
+			head.written = 0;
+			head.next = null;
+			tail = head;
+			readPos = 0;
+			closed = false;
+		} finally {
+			readLock.unlock();
+			writeLock.unlock();
+		}
+	}
+
+	private int drain(byte[] b, int off, int len) {
+		int total = 0;
+		while (total < len) {
+			int written = head.written;
+			if (readPos == written) {
+				Chunk next = head.next;
+				if (readPos < CHUNK_SIZE || next == null) {
+					break;
+				}
+				head = next;
+				readPos = 0;
+				continue;
+			}
+			int n = Math.min(len - total, written - readPos);
+			System.arraycopy(head.data, readPos, b, off + total, n);
+			readPos += n;
+			total += n;
+		}
+		return total;
+	}
+
+	private boolean hasData() {
+		return closed || head.written > readPos || head.next != null;
+	}
+
+	private void await() throws InterruptedIOException {
+		for (int i = 0; i < SPINS + YIELDS; i++) {
+			if (hasData()) {
+				return;
+			}
+			if (i >= SPINS) {
+				Thread.yield();
+			}
+		}
+		waiter = Thread.currentThread();
+		try {
+			while (!hasData()) {
+				LockSupport.park(this);
+				if (Thread.interrupted()) {
+					// Leave the flag set so the program can see it too.
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for input");
+				}
+			}
+		} finally {
+			waiter = null;
+		}
+	}
+
+	private void signal() {
+		Thread t = waiter;
+		if (t != null) {
+			LockSupport.unpark(t);
+		}
+	}
+
+}
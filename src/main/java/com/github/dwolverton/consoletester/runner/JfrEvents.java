@@ -0,0 +1,214 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Java Flight Recorder events for profiling test runs, in the "Console Tester" category.
+ *
+ * <p>The events are defined at run time through <code>jdk.jfr.EventFactory</code>, found by
+ * reflection, so this library still builds and runs on JVMs without JFR. There, and whenever
+ * no recording is taking the events, each method here does nothing but a quick check.
+ *
+ * <p>Duration events are begun with a <code>begin</code> method, which returns null when the
+ * event isn't being recorded, and committed with the matching <code>end</code> method.
+ */
+public final class JfrEvents {
+
+	private static final Lookup jfr = Lookup.find();
+
+	private static final Kind PROGRAM_START = new Kind("ProgramStart", "Program Start",
+			"A program was started", field(String.class, "program", "Program"));
+	private static final Kind BLOCK_END = new Kind("BlockEnd", "Block End",
+			"A program finished a block of output",
+			field(String.class, "endType", "End Type"), field(long.class, "outputBytes", "Output Bytes"));
+	private static final Kind INPUT = new Kind("Input", "Input Delivered",
+			"A line of input was given to a program",
+			field(int.class, "length", "Length"), field(boolean.class, "scripted", "Scripted"));
+	private static final Kind TERMINATE = new Kind("Terminate", "Program Terminate",
+			"A program was terminated, or waited for to stop", field(boolean.class, "stopped", "Stopped"));
+	private static final Kind CLASS_DEFINE = new Kind("ClassDefine", "Class Define",
+			"A class of a program was loaded by a TempClassLoader",
+			field(String.class, "className", "Class Name"), field(int.class, "bytes", "Bytes"));
+	private static final Kind MATCH = new Kind("Match", "Match",
+			"The output of a program was searched for what a test expects",
+			field(String.class, "expected", "Expected"), field(boolean.class, "found", "Found"));
+
+	/** Cannot be instantiated. */
+	private JfrEvents() {}
+
+	public static void programStarted(String program) {
+		PROGRAM_START.commit(PROGRAM_START.begin(), program);
+	}
+
+	public static void blockEnded(BlockEndType endType, long outputBytes) {
+		BLOCK_END.commit(BLOCK_END.begin(), endType.name(), outputBytes);
+	}
+
+	public static void inputDelivered(int length, boolean scripted) {
+		INPUT.commit(INPUT.begin(), length, scripted);
+	}
+
+	public static Object beginTerminate() {
+		return TERMINATE.begin();
+	}
+
+	/**
+	 * @param stopped whether the program had stopped by the end.
+	 */
+	public static void endTerminate(Object event, boolean stopped) {
+		TERMINATE.commit(event, stopped);
+	}
+
+	public static Object beginClassDefine() {
+		return CLASS_DEFINE.begin();
+	}
+
+	public static void endClassDefine(Object event, String className, int bytes) {
+		CLASS_DEFINE.commit(event, className, bytes);
+	}
+
+	public static Object beginMatch() {
+		return MATCH.begin();
+	}
+
+	public static void endMatch(Object event, String expected, boolean found) {
+		MATCH.commit(event, expected, found);
+	}
+
+	private static Object[] field(Class<?> type, String name, String label) {
+		return new Object[] { type, name, label };
+	}
+
+	/**
+	 * One type of event. Does nothing if JFR is missing.
+	 */
+	private static class Kind {
+		private final Object factory;
+		private final Object eventType;
+
+		Kind(String name, String label, String description, Object[]... fields) {
+			Object factory = null;
+			Object eventType = null;
+			if (jfr != null) {
+				try {
+					List<Object> annotations = new ArrayList<>();
+					annotations.add(jfr.annotation("Name", "consoletester." + name));
+					annotations.add(jfr.annotation("Label", label));
+					annotations.add(jfr.annotation("Description", description));
+					annotations.add(jfr.annotation("Category", new String[] { "Console Tester" }));
+					List<Object> values = new ArrayList<>();
+					for (Object[] field : fields) {
+						values.add(jfr.newValueDescriptor.invoke((Class<?>) field[0], (String) field[1],
+								Collections.singletonList(jfr.annotation("Label", field[2]))));
+					}
+					factory = jfr.create.invoke(annotations, values);
+					eventType = jfr.getEventType.invoke(factory);
+				} catch (Throwable e) {
+					factory = null;
+				}
+			}
+			this.factory = factory;
+			this.eventType = eventType;
+		}
+
+		/**
+		 * @return a begun event, or null if it isn't being recorded.
+		 */
+		Object begin() {
+			if (factory == null) {
+				return null;
+			}
+			try {
+				if (!(boolean) jfr.isEnabled.invoke(eventType)) {
+					return null;
+				}
+				Object event = jfr.newEvent.invoke(factory);
+				jfr.begin.invoke(event);
+				return event;
+			} catch (Throwable e) {
+				return null;
+			}
+		}
+
+		void commit(Object event, Object... values) {
+			if (event == null) {
+				return;
+			}
+			try {
+				jfr.end.invoke(event);
+				if (!(boolean) jfr.shouldCommit.invoke(event)) {
+					return;
+				}
+				for (int i = 0; i < values.length; i++) {
+					jfr.set.invoke(event, i, values[i]);
+				}
+				jfr.commit.invoke(event);
+			} catch (Throwable e) {
+				// Profiling must never break a test.
+			}
+		}
+	}
+
+	/**
+	 * The parts of <code>jdk.jfr</code> that are used.
+	 */
+	private static class Lookup {
+		MethodHandle create;
+		MethodHandle newValueDescriptor;
+		MethodHandle newAnnotationElement;
+		MethodHandle getEventType;
+		MethodHandle isEnabled;
+		MethodHandle newEvent;
+		MethodHandle begin;
+		MethodHandle end;
+		MethodHandle shouldCommit;
+		MethodHandle set;
+		MethodHandle commit;
+		ClassLoader loader;
+
+		/**
+		 * @return null if JFR is not available.
+		 */
+		static Lookup find() {
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+				Class<?> factory = Class.forName("jdk.jfr.EventFactory");
+				Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+				Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+				Class<?> eventType = Class.forName("jdk.jfr.EventType");
+				Class<?> event = Class.forName("jdk.jfr.Event");
+				Lookup jfr = new Lookup();
+				jfr.loader = factory.getClassLoader();
+				jfr.create = lookup.findStatic(factory, "create", MethodType.methodType(factory, List.class, List.class));
+				jfr.newValueDescriptor = lookup.findConstructor(valueDescriptor,
+						MethodType.methodType(void.class, Class.class, String.class, List.class));
+				jfr.newAnnotationElement = lookup.findConstructor(annotationElement,
+						MethodType.methodType(void.class, Class.class, Object.class));
+				jfr.getEventType = lookup.findVirtual(factory, "getEventType", MethodType.methodType(eventType));
+				jfr.isEnabled = lookup.findVirtual(eventType, "isEnabled", MethodType.methodType(boolean.class));
+				jfr.newEvent = lookup.findVirtual(factory, "newEvent", MethodType.methodType(event));
+				jfr.begin = lookup.findVirtual(event, "begin", MethodType.methodType(void.class));
+				jfr.end = lookup.findVirtual(event, "end", MethodType.methodType(void.class));
+				jfr.shouldCommit = lookup.findVirtual(event, "shouldCommit", MethodType.methodType(boolean.class));
+				jfr.set = lookup.findVirtual(event, "set", MethodType.methodType(void.class, int.class, Object.class));
+				jfr.commit = lookup.findVirtual(event, "commit", MethodType.methodType(void.class));
+				return jfr;
+			} catch (ReflectiveOperationException | LinkageError | SecurityException e) {
+				return null;
+			}
+		}
+
+		Object annotation(String type, Object value) throws Throwable {
+			Class<? extends Annotation> annotation = Class.forName("jdk.jfr." + type, true, loader)
+					.asSubclass(Annotation.class);
+			return newAnnotationElement.invoke(annotation, value);
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link TempClassLoader} kept for all the runs of a program, so that its classes are only
+ * loaded, verified and compiled once. The program's static fields are put back the way they
+ * were after class initialization before each run instead.
+ *
+ * <p>The first run uses a fresh loader, which shows which classes the program uses. The next
+ * run uses another, which initializes those classes before the program starts and saves
+ * their static fields. From then on that loader is kept as long as the fields can be
+ * restored (see {@link StaticState}), the program loads no new classes, and each run stops.
+ * Otherwise the next run starts over with a fresh loader.
+ *
+ * <p>A program with a class whose static initializer does more than set its own static
+ * fields, such as print a banner or read input, always gets a fresh loader, since
+ * initializing ahead of time would move what it does and restoring fields wouldn't repeat it.
+ *
+ * <p>Loaders are kept for the life of the JVM, one per program and parent class loader. A
+ * program that is started again while still running gets a fresh loader that isn't kept.
+ */
+final class KeptLoader {
+
+	private static final Map<ClassLoader, Map<String, KeptLoader>> kept = new HashMap<>();
+
+	private final ClassLoader parent;
+	private final String mainClassName;
+	private final ReloadPolicy reloadPolicy;
+	// Guarded by kept.
+	private boolean inUse;
+	// The rest is guarded by this.
+	private TempClassLoader loader;
+	private StaticState state;
+	// The classes the program used in its last run, in the order they were defined.
+	private List<String> classNames = Collections.emptyList();
+	// Why the loader can't be kept, once that is known.
+	private String unrestorable;
+
+	private KeptLoader(ClassLoader parent, String mainClassName, ReloadPolicy reloadPolicy) {
+		this.parent = parent;
+		this.mainClassName = mainClassName;
+		this.reloadPolicy = reloadPolicy;
+	}
+
+	/**
+	 * @return the kept loader for the program, for one run. Must be released after.
+	 */
+	static KeptLoader acquire(ClassLoader parent, String mainClassName, ReloadPolicy reloadPolicy) {
+		synchronized (kept) {
+			Map<String, KeptLoader> programs = kept.computeIfAbsent(parent, p -> new HashMap<>());
+			KeptLoader k = programs.get(mainClassName);
+			if (k == null || k.reloadPolicy != reloadPolicy) {
+				k = new KeptLoader(parent, mainClassName, reloadPolicy);
+				programs.put(mainClassName, k);
+			}
+			if (k.inUse) {
+				return new KeptLoader(parent, mainClassName, reloadPolicy);
+			}
+			k.inUse = true;
+			return k;
+		}
+	}
+
+	/**
+	 * @param metrics records class loading times. May be null.
+	 * @return the program, which gets its classes ready when it is run.
+	 */
+	Runnable program(RunnerMetrics metrics) {
+		return () -> Runnables.fromMainClass(prepare(metrics)).run();
+	}
+
+	/**
+	 * Called on the program's thread, so that anything class initialization prints or reads
+	 * is part of the program's run.
+	 * @return the main class.
+	 */
+	private synchronized Class<?> prepare(RunnerMetrics metrics) {
+		try {
+			if (loader != null && state != null && state.getUnrestorableReason() == null) {
+				loader.setMetrics(metrics);
+				state.restore();
+			} else {
+				loader = ReusableLoaders.newLoader(parent, mainClassName, reloadPolicy, metrics);
+				state = null;
+				if (!classNames.isEmpty()) {
+					unrestorable = initializerSideEffect();
+				}
+				if (!classNames.isEmpty() && unrestorable == null) {
+					try {
+						for (String name : classNames) {
+							Class.forName(name, true, loader);
+						}
+						state = StaticState.capture(loader.getDefinedClasses());
+						unrestorable = state.getUnrestorableReason();
+					} catch (ClassNotFoundException | LinkageError e) {
+						// The program can't be initialized ahead of time.
+						unrestorable = "class initialization failed: " + e;
+						loader = ReusableLoaders.newLoader(parent, mainClassName, reloadPolicy, metrics);
+					}
+				}
+			}
+			return loader.loadClass(mainClassName);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException("Unable to load main class", e);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException("Unable to reset static fields", e);
+		}
+	}
+
+	/**
+	 * @return what initializing one of the program's classes does besides set its own static
+	 *         fields, such as print, or null if nothing.
+	 */
+	private String initializerSideEffect() {
+		for (String name : classNames) {
+			try {
+				ClassBytesCache.Entry entry = ClassBytesCache.read(parent, name);
+				String effect = entry == null ? null : ClassFile.parse(entry.bytes()).initializerSideEffect();
+				if (effect != null) {
+					return "the static initializer of " + name + " " + effect;
+				}
+			} catch (IOException | RuntimeException e) {
+				return "the class file of " + name + " can't be read";
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The run is over.
+	 * @param stopped whether the program has stopped. If not, it may still be using the
+	 *        loader, so the loader is left to it and not kept.
+	 */
+	void release(boolean stopped) {
+		if (!stopped) {
+			synchronized (kept) {
+				kept.getOrDefault(parent, Collections.emptyMap()).remove(mainClassName, this);
+			}
+			return;
+		}
+		synchronized (this) {
+			if (loader != null && (state == null || unrestorable != null
+					|| loader.getDefinedClasses().size() != state.getClassCount())) {
+				classNames = new ArrayList<>();
+				if (unrestorable == null) {
+					// Learn which classes to get ready next time.
+					for (Class<?> c : loader.getDefinedClasses()) {
+						classNames.add(c.getName());
+					}
+				}
+				loader = null;
+				state = null;
+			}
+		}
+		synchronized (kept) {
+			inUse = false;
+		}
+	}
+
+	/**
+	 * @return why this program's loader can't be kept, or null if it can or it isn't known yet.
+	 */
+	synchronized String getUnrestorableReason() {
+		return unrestorable;
+	}
+
+}
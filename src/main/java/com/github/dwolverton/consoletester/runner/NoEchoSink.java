@@ -0,0 +1,21 @@
+package com.github.dwolverton.consoletester.runner;
+
+/**
+ * See {@link EchoSink#none()}.
+ */
+final class NoEchoSink implements EchoSink {
+
+	static final NoEchoSink INSTANCE = new NoEchoSink();
+
+	private NoEchoSink() {}
+
+	@Override
+	public void output(byte[] b, int off, int len) {}
+
+	@Override
+	public void input(String line) {}
+
+	@Override
+	public void println(String line) {}
+
+}
@@ -0,0 +1,300 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Captures a program's UTF-8 output as characters.
+ *
+ * <p>Characters are appended to fixed-size chunks that are never moved or modified once
+ * written, so any range of the output can be handed out as a {@link CharSequence} view
+ * without copying. One writer may append while other threads read views of what has already
+ * been written.
+ *
+ * <p>Once the output passes a threshold, further chunks are memory-mapped from a temporary
+ * file rather than allocated on the heap, so a program that prints a huge amount cannot run
+ * the tests out of memory. The threshold, in characters, is set by the
+ * <code>consoletester.output.spillThreshold</code> system property (default: 8M). Each
+ * buffer has at most one such file, which is reused after {@link #reset()}, so views of
+ * spilled output are only good until then. {@link #close()} releases the file.
+ *
+ * <p>A buffer holds up to about 2G characters. Writing more throws an
+ * {@link IllegalStateException}.
+ */
+public class OutputBuffer extends OutputStream {
+
+	private static final int CHUNK_SHIFT = 14;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	/** Number of chunks mapped at a time. */
+	private static final int SEGMENT_CHUNKS = 512;
+	private static final long SEGMENT_BYTES = (long) SEGMENT_CHUNKS * CHUNK_SIZE * 2;
+	/** So that the length always fits in an int. */
+	private static final int MAX_CHUNKS = Integer.MAX_VALUE >> CHUNK_SHIFT;
+
+	static final int DEFAULT_SPILL_THRESHOLD = Integer.getInteger("consoletester.output.spillThreshold", 8 << 20);
+
+	private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	// Bytes of a character that has been split across writes.
+	private final ByteBuffer partial = ByteBuffer.allocate(8);
+	private final int spillChunks;
+
+	// Only the first chunkCount entries are used. Views keep the array they were created with.
+	private volatile CharBuffer[] chunks;
+	private int chunkCount;
+	private volatile int length;
+	private volatile long byteCount;
+	private CharBuffer current;
+	// The file that output spills to, and the parts of it mapped so far.
+	private File spillFile;
+	private FileChannel spillChannel;
+	private final List<MappedByteBuffer> segments = new ArrayList<>();
+	// The chunks of the mapped parts, in order, which are used again after a reset.
+	private final List<CharBuffer> mappedChunks = new ArrayList<>();
+
+	public OutputBuffer() {
+		this(DEFAULT_SPILL_THRESHOLD);
+	}
+
+	/**
+	 * @param spillThreshold number of characters to keep on the heap before spilling to disk.
+	 */
+	public OutputBuffer(int spillThreshold) {
+		this.spillChunks = Math.max(1, (spillThreshold + CHUNK_SIZE - 1) >> CHUNK_SHIFT);
+		reset();
+	}
+
+	/**
+	 * Discard all output. Views that were already handed out are unaffected, except for any
+	 * spilled output.
+	 */
+	public synchronized void reset() {
+		chunks = new CharBuffer[16];
+		chunkCount = 0;
+		addChunk();
+		length = 0;
+		byteCount = 0;
+		decoder.reset();
+		partial.clear();
+	}
+
+	/**
+	 * @return true if some of the output is held in memory-mapped files.
+	 */
+	public synchronized boolean isSpilled() {
+		return chunkCount > spillChunks;
+	}
+
+	@Override
+	public void write(int b) {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) {
+		byteCount += len;
+		// Finish a character that was split across writes.
+		while (len > 0 && partial.position() > 0) {
+			partial.put(b[off++]);
+			len--;
+			partial.flip();
+			decode(partial);
+			partial.compact();
+		}
+		ByteBuffer in = ByteBuffer.wrap(b, off, len);
+		decode(in);
+		// Keep any incomplete character for the next write.
+		partial.put(in);
+	}
+
+	private void decode(ByteBuffer in) {
+		while (true) {
+			CoderResult result = decoder.decode(in, current, false);
+			if (!result.isOverflow()) {
+				updateLength();
+				return;
+			}
+			if (current.hasRemaining()) {
+				// A surrogate pair does not fit at the end of the chunk. Split it across chunks.
+				CharBuffer pair = CharBuffer.allocate(2);
+				decoder.decode(in, pair, false);
+				pair.flip();
+				current.put(pair.get());
+				addChunk();
+				current.put(pair);
+			} else {
+				addChunk();
+			}
+			updateLength();
+		}
+	}
+
+	private void addChunk() {
+		if (chunkCount == MAX_CHUNKS) {
+			throw new IllegalStateException("Program output is over the limit of "
+					+ (long) MAX_CHUNKS * CHUNK_SIZE + " characters");
+		}
+		CharBuffer chunk = chunkCount < spillChunks ? CharBuffer.allocate(CHUNK_SIZE) : mappedChunk();
+		CharBuffer[] grown = chunks;
+		if (chunkCount == grown.length) {
+			grown = Arrays.copyOf(grown, grown.length * 2);
+		}
+		grown[chunkCount++] = chunk;
+		// Publish the chunk before any length that covers it.
+		chunks = grown;
+		current = chunk.duplicate();
+	}
+
+	private CharBuffer mappedChunk() {
+		int index = chunkCount - spillChunks;
+		if (index == mappedChunks.size()) {
+			mapSegment();
+		}
+		return mappedChunks.get(index);
+	}
+
+	private void mapSegment() {
+		try {
+			if (spillChannel == null) {
+				spillFile = File.createTempFile("iotester-output", ".tmp");
+				spillChannel = new RandomAccessFile(spillFile, "rw").getChannel();
+				// The mapping outlives the file on most systems. Elsewhere, close() deletes it.
+				if (spillFile.delete()) {
+					spillFile = null;
+				}
+			}
+			// Mapping past the end of the file grows it.
+			MappedByteBuffer mapped = spillChannel.map(FileChannel.MapMode.READ_WRITE,
+					segments.size() * SEGMENT_BYTES, SEGMENT_BYTES);
+			segments.add(mapped);
+			for (int i = 0; i < SEGMENT_CHUNKS; i++) {
+				mapped.limit((i + 1) * CHUNK_SIZE * 2).position(i * CHUNK_SIZE * 2);
+				mappedChunks.add(mapped.slice().order(ByteOrder.nativeOrder()).asCharBuffer());
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to spill program output to disk", e);
+		}
+	}
+
+	/**
+	 * Discard all output and release the file it spilled to, if any. The buffer can still be
+	 * written to.
+	 *
+	 * <p>Views that were already handed out still work. The memory mapped for them is
+	 * unmapped by the garbage collector once they are gone, since unmapping it while one is
+	 * still in use could crash the JVM.
+	 */
+	@Override
+	public synchronized void close() {
+		reset();
+		if (spillChannel == null) {
+			return;
+		}
+		segments.clear();
+		mappedChunks.clear();
+		try {
+			spillChannel.close();
+		} catch (IOException e) {
+			// Nothing more to do with it.
+		}
+		spillChannel = null;
+		if (spillFile != null && !spillFile.delete()) {
+			spillFile.deleteOnExit();
+		}
+		spillFile = null;
+	}
+
+	private void updateLength() {
+		length = (chunkCount - 1) * CHUNK_SIZE + current.position();
+	}
+
+	/**
+	 * @return the number of characters written so far.
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return the number of bytes written so far.
+	 */
+	public long byteCount() {
+		return byteCount;
+	}
+
+	/**
+	 * A view of characters that have already been written. Its contents never change.
+	 */
+	public CharSequence view(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+		}
+		return new View(chunks, start, end);
+	}
+
+	private static class View implements CharSequence {
+		private final CharBuffer[] chunks;
+		private final int start;
+		private final int end;
+
+		View(CharBuffer[] chunks, int start, int end) {
+			this.chunks = chunks;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int length() {
+			return end - start;
+		}
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+			}
+			int i = start + index;
+			return chunks[i >>> CHUNK_SHIFT].get(i & CHUNK_MASK);
+		}
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			if (from < 0 || to > end - start || from > to) {
+				throw new IndexOutOfBoundsException("start " + from + ", end " + to + ", length " + length());
+			}
+			return new View(chunks, start + from, start + to);
+		}
+
+		@Override
+		public String toString() {
+			char[] copy = new char[end - start];
+			int i = start;
+			while (i < end) {
+				int offset = i & CHUNK_MASK;
+				int n = Math.min(CHUNK_SIZE - offset, end - i);
+				CharBuffer chunk = chunks[i >>> CHUNK_SHIFT].duplicate();
+				chunk.position(offset);
+				chunk.get(copy, i - start, n);
+				i += n;
+			}
+			return new String(copy);
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Runs a console program for {@link com.github.dwolverton.consoletester.IOTester}. The
+ * program's output is delivered as a series of {@link IOBlock}s, each ending when the program
+ * waits for input, ends, hangs or throws an exception.
+ *
+ * <p>{@link Runner} runs programs in this JVM. {@link ForkedRunner} runs them in separate
+ * worker JVMs for full isolation.
+ */
+public interface ProgramRunner {
+
+	/**
+	 * Run the main method of the given class, freshly loaded so that static fields start over.
+	 */
+	void start(Class<?> mainClass);
+
+	/**
+	 * Run the main method of the named class, freshly loaded so that static fields start over.
+	 */
+	void start(String mainClassName);
+
+	/**
+	 * Run arbitrary code as the program.
+	 * @throws UnsupportedOperationException if this runner can only run main classes.
+	 */
+	void start(Runnable program);
+
+	/**
+	 * Wait for the program to finish the current block.
+	 */
+	IOBlock nextBlock();
+
+	/**
+	 * Wait for the program to finish the current block, or for its output so far to satisfy
+	 * the given condition. In that case the output so far is returned as a
+	 * {@link BlockEndType#RUNNING} block, and the block continues. The next call returns it
+	 * again, with any further output.
+	 *
+	 * <p>By default, this simply waits for the end of the block.
+	 */
+	default IOBlock nextBlock(Predicate<CharSequence> enough) {
+		return nextBlock();
+	}
+
+	/**
+	 * Send a line of input to the program.
+	 */
+	void in(Object line);
+
+	/**
+	 * Answer the program's next requests for input with the given lines, one line each time it
+	 * waits, without waiting for the test. Each request still ends an INPUT block, so the
+	 * output can be checked block by block afterwards.
+	 */
+	void script(List<?> lines);
+
+	/**
+	 * Stop the program if it is still running and release its resources.
+	 * @param suppressStackTrace true to hide any exception the program throws as it is stopped.
+	 */
+	void terminate(boolean suppressStackTrace);
+
+	/**
+	 * Set how to decide when the program is hung. Defaults to {@link HangDetector#DEFAULT}.
+	 */
+	void setHangDetector(HangDetector hangDetector);
+
+	/**
+	 * Set where to show programs' output and input for anyone watching the tests.
+	 */
+	void setEchoSink(EchoSink echoSink);
+
+	/**
+	 * Set where to record measurements of the runs.
+	 */
+	void setMetrics(RunnerMetrics metrics);
+
+	/**
+	 * Run programs on virtual threads when the JVM supports them. See {@link ProgramThreads}.
+	 */
+	void setVirtualThreads(boolean virtualThreads);
+
+}
@@ -0,0 +1,236 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the threads that programs under test run on.
+ *
+ * <p>Platform threads are pooled. Once a program finishes, its thread waits a while for the
+ * next program instead of dying, so large suites of short tests don't pay for creating a
+ * thread every time. Before it does, the thread is put back the way it started: its name,
+ * priority and uncaught exception handler are restored and its thread locals are cleared.
+ * If thread locals can't be cleared on this JVM, every program gets a new thread instead. A
+ * program that never finishes keeps its thread, so the pool has a limit, past which programs
+ * also get new threads.
+ *
+ * <p>On Java 21 and later programs can run on virtual threads. A program waiting for input
+ * then only parks its virtual thread, so thousands of paused programs are cheap. Since this
+ * library is built for Java 8, virtual threads are created reflectively, and platform threads
+ * are used when they are not available.
+ *
+ * <p>Note that a virtual thread stuck in an infinite loop keeps its carrier thread busy for
+ * good, and hang detection cannot use CPU time for virtual threads. Suites with many hung
+ * submissions may do better with platform threads.
+ */
+public class ProgramThreads {
+
+	private static final String THREAD_NAME = "IOTester program";
+	private static final int MAX_POOLED = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
+	private static final MethodHandle newVirtualThread = findVirtualThreadFactory();
+	private static final MethodHandle[] clearThreadLocals = findThreadLocalsClearers();
+
+	private static final ExecutorService platformPool = new ThreadPoolExecutor(0, MAX_POOLED,
+			60, TimeUnit.SECONDS, new SynchronousQueue<>(), ProgramThreads::newPlatformThread,
+			(runnable, pool) -> newPlatformThread(runnable).start());
+
+	/** Cannot be instantiated. */
+	private ProgramThreads() {}
+
+	/**
+	 * @return true if this JVM can run programs on virtual threads.
+	 */
+	public static boolean isVirtualSupported() {
+		return newVirtualThread != null;
+	}
+
+	/**
+	 * Run a program on a pooled platform thread, or on a new virtual thread.
+	 * @param virtual use a virtual thread if supported. Otherwise a platform thread is used.
+	 */
+	static Execution start(Runnable runnable, boolean virtual) {
+		Execution execution = new Execution(runnable);
+		if (virtual && newVirtualThread != null) {
+			newThread(THREAD_NAME, execution::run, true).start();
+		} else if (clearThreadLocals == null) {
+			newPlatformThread(execution::run).start();
+		} else {
+			platformPool.execute(execution::run);
+		}
+		return execution;
+	}
+
+	private static Thread newPlatformThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, THREAD_NAME);
+		// Idle pool threads must not keep the JVM alive.
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * Create an unstarted thread.
+	 * @param virtual use a virtual thread if supported. Otherwise a platform thread is used.
+	 */
+	static Thread newThread(String name, Runnable runnable, boolean virtual) {
+		if (virtual && newVirtualThread != null) {
+			try {
+				return (Thread) newVirtualThread.invoke(name, runnable);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new RuntimeException("Unable to create virtual thread", e);
+			}
+		}
+		return new Thread(runnable, name);
+	}
+
+	/**
+	 * Build a handle equivalent to <code>(name, runnable) -> Thread.ofVirtual().name(name).unstarted(runnable)</code>
+	 * @return null if virtual threads are not supported.
+	 */
+	private static MethodHandle findVirtualThreadFactory() {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Class<?> ofVirtualClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+			MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualClass));
+			MethodHandle name = lookup.findVirtual(ofVirtualClass, "name", MethodType.methodType(ofVirtualClass, String.class));
+			MethodHandle unstarted = lookup.findVirtual(builderClass, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+			// (name) -> Thread.ofVirtual().name(name)
+			MethodHandle named = MethodHandles.collectArguments(name, 0, ofVirtual);
+			// Thread.Builder.unstarted(runnable), called on an OfVirtual
+			unstarted = unstarted.asType(MethodType.methodType(Thread.class, ofVirtualClass, Runnable.class));
+			// (name, runnable) -> Thread.ofVirtual().name(name).unstarted(runnable)
+			return MethodHandles.collectArguments(unstarted, 0, named);
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Build handles that set a thread's <code>threadLocals</code> and
+	 * <code>inheritableThreadLocals</code> fields to null, through sun.misc.Unsafe since
+	 * java.lang is not open to reflection on Java 9 and later.
+	 * @return the two handles, each <code>(thread) -> void</code>, or null if they aren't
+	 *         available.
+	 */
+	private static MethodHandle[] findThreadLocalsClearers() {
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+			theUnsafe.setAccessible(true);
+			Object unsafe = theUnsafe.get(null);
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			MethodHandle offset = lookup.findVirtual(unsafeClass, "objectFieldOffset",
+					MethodType.methodType(long.class, Field.class)).bindTo(unsafe);
+			MethodHandle put = lookup.findVirtual(unsafeClass, "putObject",
+					MethodType.methodType(void.class, Object.class, long.class, Object.class)).bindTo(unsafe);
+			MethodHandle[] clearers = new MethodHandle[2];
+			String[] fields = { "threadLocals", "inheritableThreadLocals" };
+			for (int i = 0; i < fields.length; i++) {
+				long fieldOffset = (long) offset.invoke(Thread.class.getDeclaredField(fields[i]));
+				// (thread) -> unsafe.putObject(thread, fieldOffset, null)
+				MethodHandle clear = MethodHandles.insertArguments(put, 1, fieldOffset, null);
+				clearers[i] = clear.asType(MethodType.methodType(void.class, Thread.class));
+			}
+			return clearers;
+		} catch (Throwable e) {
+			// Not a JVM with sun.misc.Unsafe, or its fields are named differently.
+			return null;
+		}
+	}
+
+	/**
+	 * A program running on a thread that may go on to run other programs. Unlike
+	 * {@link Thread#interrupt()}, interrupting an execution never reaches a later program.
+	 */
+	static class Execution {
+		private final Runnable runnable;
+		private final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		private final CountDownLatch finished = new CountDownLatch(1);
+		private volatile Thread thread;
+		private boolean interrupted;
+
+		private Execution(Runnable runnable) {
+			this.runnable = runnable;
+		}
+
+		private void run() {
+			Thread current = Thread.currentThread();
+			// Start as a new thread would: with the launcher's class loader and no interrupt.
+			Thread.interrupted();
+			current.setContextClassLoader(contextClassLoader);
+			synchronized (this) {
+				thread = current;
+				if (interrupted) {
+					current.interrupt();
+				}
+			}
+			String name = current.getName();
+			int priority = current.getPriority();
+			try {
+				runnable.run();
+			} finally {
+				synchronized (this) {
+					thread = null;
+				}
+				Thread.interrupted();
+				reset(current, name, priority);
+				finished.countDown();
+			}
+		}
+
+		/**
+		 * Undo anything the program changed about its thread, so the next program on it
+		 * starts as it would on a new thread.
+		 */
+		private static void reset(Thread current, String name, int priority) {
+			current.setName(name);
+			current.setPriority(priority);
+			current.setUncaughtExceptionHandler(null);
+			if (clearThreadLocals != null) {
+				try {
+					for (MethodHandle clear : clearThreadLocals) {
+						clear.invokeExact(current);
+					}
+				} catch (Throwable e) {
+					throw new IllegalStateException("Unable to clear thread locals", e);
+				}
+			}
+		}
+
+		/**
+		 * @return the thread running the program, or null if it hasn't started or is done.
+		 */
+		Thread thread() {
+			return thread;
+		}
+
+		boolean isDone() {
+			return finished.getCount() == 0;
+		}
+
+		synchronized void interrupt() {
+			interrupted = true;
+			if (thread != null) {
+				thread.interrupt();
+			}
+		}
+
+		/**
+		 * @return true if the program finished in time.
+		 */
+		boolean join(long millis) throws InterruptedException {
+			return finished.await(millis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks after programs that were terminated but have not stopped yet, so that terminating a
+ * program never has to wait for it. Such zombie programs are interrupted again every so often
+ * in case they ignored it, and reported on stderr if they keep running.
+ */
+final class Reaper {
+
+	private static final long CHECK_MILLIS = 50;
+	private static final long INTERRUPT_MILLIS = 1000;
+	private static final long REPORT_MILLIS = 3000;
+
+	private static final Set<Zombie> zombies = ConcurrentHashMap.newKeySet();
+	private static Thread thread;
+
+	/** Cannot be instantiated. */
+	private Reaper() {}
+
+	/**
+	 * Take over a program that has been interrupted but is still running.
+	 * @param whenStopped run on the reaper's thread once the program has stopped.
+	 */
+	static void adopt(ProgramThreads.Execution execution, Runnable whenStopped) {
+		zombies.add(new Zombie(execution, whenStopped));
+		startThread();
+	}
+
+	/**
+	 * @return the number of terminated programs that are still running.
+	 */
+	static int zombieCount() {
+		return zombies.size();
+	}
+
+	private static synchronized void startThread() {
+		if (thread == null) {
+			thread = new Thread(Reaper::run, "IOTester reaper");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private static void run() {
+		while (true) {
+			try {
+				Thread.sleep(CHECK_MILLIS);
+			} catch (InterruptedException e) {
+				return;
+			}
+			long now = System.nanoTime();
+			for (Iterator<Zombie> it = zombies.iterator(); it.hasNext();) {
+				Zombie zombie = it.next();
+				if (zombie.execution.isDone()) {
+					it.remove();
+					zombie.whenStopped.run();
+				} else {
+					zombie.check(now);
+				}
+			}
+		}
+	}
+
+	private static class Zombie {
+		final ProgramThreads.Execution execution;
+		final Runnable whenStopped;
+		final long terminatedAt = System.nanoTime();
+		long interruptedAt = terminatedAt;
+		boolean reported;
+
+		Zombie(ProgramThreads.Execution execution, Runnable whenStopped) {
+			this.execution = execution;
+			this.whenStopped = whenStopped;
+		}
+
+		void check(long now) {
+			if (now - interruptedAt >= TimeUnit.MILLISECONDS.toNanos(INTERRUPT_MILLIS)) {
+				execution.interrupt();
+				interruptedAt = now;
+			}
+			if (!reported && now - terminatedAt >= TimeUnit.MILLISECONDS.toNanos(REPORT_MILLIS)) {
+				reported = true;
+				StringBuilder report = new StringBuilder("IOTester: a terminated program is still running");
+				Thread thread = execution.thread();
+				if (thread != null) {
+					StackTraceElement[] stack = thread.getStackTrace();
+					if (stack.length > 0) {
+						report.append(" at ").append(stack[0]);
+					}
+				}
+				report.append(". It may be ignoring interrupts. ")
+						.append(zombies.size()).append(" program(s) still running.");
+				System.err.println(report);
+			}
+		}
+	}
+
+}
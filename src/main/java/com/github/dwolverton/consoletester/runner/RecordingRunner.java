@@ -0,0 +1,132 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import com.github.dwolverton.consoletester.runner.Transcript.Kind;
+
+/**
+ * Runs programs with another {@link ProgramRunner} while recording a {@link Transcript}. The
+ * transcript is saved to a {@link TranscriptStore} under the given name each time a program
+ * is terminated, so the test can later be checked again with a {@link ReplayRunner} without
+ * running anything.
+ */
+public class RecordingRunner implements ProgramRunner {
+
+	private final ProgramRunner runner;
+	private final TranscriptStore store;
+	private final String name;
+	private final Transcript transcript = new Transcript();
+	private long startNanos;
+	// Output of a block that hasn't ended yet. Only recorded if it never does.
+	private IOBlock running;
+
+	public RecordingRunner(ProgramRunner runner, TranscriptStore store, String name) {
+		this.runner = runner;
+		this.store = store;
+		this.name = name;
+	}
+
+	@Override
+	public void start(Class<?> mainClass) {
+		runner.start(mainClass);
+		started(mainClass.getName());
+	}
+
+	@Override
+	public void start(String mainClassName) {
+		runner.start(mainClassName);
+		started(mainClassName);
+	}
+
+	/**
+	 * The program is recorded without a name.
+	 */
+	@Override
+	public void start(Runnable program) {
+		runner.start(program);
+		started("");
+	}
+
+	@Override
+	public IOBlock nextBlock() {
+		return recordBlock(runner.nextBlock());
+	}
+
+	@Override
+	public IOBlock nextBlock(Predicate<CharSequence> enough) {
+		return recordBlock(runner.nextBlock(enough));
+	}
+
+	@Override
+	public void in(Object line) {
+		record(Kind.INPUT, null, String.valueOf(line));
+		runner.in(line);
+	}
+
+	@Override
+	public void script(List<?> lines) {
+		if (lines.isEmpty()) {
+			return;
+		}
+		record(Kind.SCRIPT, null, lines.stream().map(String::valueOf).collect(Collectors.joining("\n")));
+		runner.script(lines);
+	}
+
+	@Override
+	public void terminate(boolean suppressStackTrace) {
+		runner.terminate(suppressStackTrace);
+		if (running != null) {
+			record(Kind.BLOCK, running.getEndType(), running.getOutput());
+			running = null;
+		}
+		try {
+			store.tag(name, store.save(transcript));
+		} catch (IOException e) {
+			throw new RuntimeException("Unable to save transcript", e);
+		}
+	}
+
+	@Override
+	public void setHangDetector(HangDetector hangDetector) {
+		runner.setHangDetector(hangDetector);
+	}
+
+	@Override
+	public void setEchoSink(EchoSink echoSink) {
+		runner.setEchoSink(echoSink);
+	}
+
+	@Override
+	public void setMetrics(RunnerMetrics metrics) {
+		runner.setMetrics(metrics);
+	}
+
+	@Override
+	public void setVirtualThreads(boolean virtualThreads) {
+		runner.setVirtualThreads(virtualThreads);
+	}
+
+	private void started(String programName) {
+		startNanos = System.nanoTime();
+		running = null;
+		record(Kind.START, null, programName);
+	}
+
+	private IOBlock recordBlock(IOBlock block) {
+		if (block.getEndType() == BlockEndType.RUNNING) {
+			running = block;
+		} else {
+			running = null;
+			record(Kind.BLOCK, block.getEndType(), block.getOutput());
+		}
+		return block;
+	}
+
+	private void record(Kind kind, BlockEndType endType, String text) {
+		transcript.add(kind, endType, text, (int) ((System.nanoTime() - startNanos) / 1_000_000));
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decides which classes a {@link TempClassLoader} loads fresh for each run of a program.
+ * Other classes are shared with the loader the program was found with, so they are only
+ * loaded once, and keep their static fields from run to run.
+ *
+ * <p>The default, {@link #mainClassRoot()}, reloads the classes that are in the same
+ * directory or jar as the main class, which is usually the code being tested. Libraries, and
+ * JUnit, are left alone. The system property <code>consoletester.reload</code> changes the
+ * default: <code>all</code>, <code>root</code>, or a comma separated list of package names.
+ */
+@FunctionalInterface
+public interface ReloadPolicy {
+
+	/**
+	 * @param className the class to be loaded.
+	 * @param resource where its class file is.
+	 * @param mainRoot the directory or jar the main class is in, as the URL of its root,
+	 *        for example <code>file:/project/bin/</code>. Null if not known.
+	 * @return true to load the class fresh.
+	 */
+	boolean reload(String className, URL resource, String mainRoot);
+
+	/**
+	 * Reload every class that isn't part of the JDK.
+	 */
+	static ReloadPolicy all() {
+		return (className, resource, mainRoot) -> true;
+	}
+
+	/**
+	 * Reload the classes that are in the same directory or jar as the main class. If that
+	 * isn't known, reload every class.
+	 */
+	static ReloadPolicy mainClassRoot() {
+		return (className, resource, mainRoot) -> mainRoot == null
+				|| resource.toExternalForm().startsWith(mainRoot);
+	}
+
+	/**
+	 * Reload the classes in the given packages, and their subpackages.
+	 * @param packages names such as <code>"com.example"</code>. Use <code>""</code> for the
+	 *        default package.
+	 */
+	static ReloadPolicy packages(String... packages) {
+		List<String> names = Arrays.asList(packages);
+		return (className, resource, mainRoot) -> {
+			int dot = className.lastIndexOf('.');
+			String packageName = dot < 0 ? "" : className.substring(0, dot);
+			for (String name : names) {
+				if (packageName.equals(name) || !name.isEmpty() && packageName.startsWith(name + ".")) {
+					return true;
+				}
+			}
+			return false;
+		};
+	}
+
+	/**
+	 * @return the policy chosen by the <code>consoletester.reload</code> system property.
+	 */
+	static ReloadPolicy fromSystemProperty() {
+		String value = System.getProperty("consoletester.reload", "root").trim();
+		if (value.equals("all")) {
+			return all();
+		}
+		if (value.equals("root")) {
+			return mainClassRoot();
+		}
+		return packages(Arrays.stream(value.split(",")).map(String::trim).toArray(String[]::new));
+	}
+
+}
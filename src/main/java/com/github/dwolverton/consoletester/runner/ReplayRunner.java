@@ -0,0 +1,113 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import com.github.dwolverton.consoletester.runner.Transcript.Entry;
+import com.github.dwolverton.consoletester.runner.Transcript.Kind;
+
+/**
+ * Plays back a {@link Transcript} recorded by {@link RecordingRunner} instead of running
+ * anything. This checks new or changed assertions against the recorded output in a fraction
+ * of the time. The test must start the same programs and give the same input as when it was
+ * recorded. Otherwise the recording can't say what the program would have done, and a
+ * RuntimeException is thrown.
+ */
+public class ReplayRunner implements ProgramRunner {
+
+	private final List<Entry> entries;
+	private int next;
+
+	public ReplayRunner(Transcript transcript) {
+		this.entries = transcript.getEntries();
+	}
+
+	@Override
+	public void start(Class<?> mainClass) {
+		start(mainClass.getName());
+	}
+
+	@Override
+	public void start(String mainClassName) {
+		expect(Kind.START, mainClassName, "start " + mainClassName);
+	}
+
+	@Override
+	public void start(Runnable program) {
+		expect(Kind.START, "", "start a program");
+	}
+
+	@Override
+	public IOBlock nextBlock() {
+		return nextBlock(null);
+	}
+
+	@Override
+	public IOBlock nextBlock(Predicate<CharSequence> enough) {
+		Entry entry = next < entries.size() ? entries.get(next) : null;
+		if (entry == null || entry.getKind() != Kind.BLOCK
+				|| (entry.getEndType() == BlockEndType.RUNNING && (enough == null || !enough.test(entry.getText())))) {
+			throw new RuntimeException("The recording has no more output here. It was made by a test that stopped waiting for output sooner.");
+		}
+		next++;
+		return new IOBlock(entry.getText(), entry.getEndType());
+	}
+
+	@Override
+	public void in(Object line) {
+		expect(Kind.INPUT, String.valueOf(line), "enter <" + line + ">");
+	}
+
+	@Override
+	public void script(List<?> lines) {
+		if (lines.isEmpty()) {
+			return;
+		}
+		expect(Kind.SCRIPT, lines.stream().map(String::valueOf).collect(Collectors.joining("\n")), "script input " + lines);
+	}
+
+	@Override
+	public void terminate(boolean suppressStackTrace) {
+		while (next < entries.size() && entries.get(next).getKind() != Kind.START) {
+			next++;
+		}
+	}
+
+	@Override
+	public void setHangDetector(HangDetector hangDetector) {
+		// Nothing runs.
+	}
+
+	@Override
+	public void setEchoSink(EchoSink echoSink) {
+		// Nothing runs.
+	}
+
+	@Override
+	public void setMetrics(RunnerMetrics metrics) {
+		// Nothing runs.
+	}
+
+	@Override
+	public void setVirtualThreads(boolean virtualThreads) {
+		// Nothing runs.
+	}
+
+	private void expect(Kind kind, String text, String action) {
+		// Skip output the test didn't wait for when it was recorded.
+		while (next < entries.size() && entries.get(next).getKind() == Kind.BLOCK && kind != Kind.BLOCK) {
+			next++;
+		}
+		if (next >= entries.size()) {
+			throw new RuntimeException("Replayed test tried to " + action + " but the recording ends here.");
+		}
+		Entry entry = entries.get(next);
+		if (entry.getKind() != kind || !entry.getText().equals(text)) {
+			throw new RuntimeException("Replayed test tried to " + action + " but the recording has "
+					+ entry.getKind() + " <" + entry.getText() + ">.");
+		}
+		next++;
+	}
+
+}
@@ -0,0 +1,247 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An on-disk cache of program runs for {@link CachingRunner}. Each entry is the
+ * {@link Transcript} of a run, along with the hash of the bytecode of every class the
+ * program loaded. An entry is only used while all of those classes are unchanged.
+ *
+ * <p>Entries are immutable files named by the hash of their contents and written with an
+ * atomic rename, so several JVMs, such as parallel Gradle test forks, can share a cache
+ * directory. When the cache grows past its size limit, the least recently used entries are
+ * deleted.
+ */
+public class ResultCache {
+
+	private static final int MAGIC = 0x494f5243; // "IORC"
+	private static final byte VERSION = 1;
+
+	private final Path dir;
+	private final long maxBytes;
+
+	/**
+	 * The size limit is set by the <code>consoletester.cache.maxBytes</code> system property
+	 * (default: 256MB).
+	 */
+	public ResultCache(Path dir) {
+		this(dir, Long.getLong("consoletester.cache.maxBytes", 256L << 20));
+	}
+
+	public ResultCache(Path dir, long maxBytes) {
+		this.dir = dir;
+		this.maxBytes = maxBytes;
+	}
+
+	static class Entry {
+		final Path file;
+		final Map<String, String> classes;
+		final Transcript transcript;
+
+		Entry(Path file, Map<String, String> classes, Transcript transcript) {
+			this.file = file;
+			this.classes = classes;
+			this.transcript = transcript;
+		}
+	}
+
+	/**
+	 * @param classes where the program's classes are loaded from.
+	 * @return the cached runs of the program that are still valid, most recent first.
+	 */
+	List<Entry> lookup(String mainClassName, ClassLoader classes) {
+		Map<String, String> currentHashes = new HashMap<>();
+		String mainHash = classHash(classes, mainClassName, currentHashes);
+		if (mainHash == null) {
+			return Collections.emptyList();
+		}
+		Path bucket = bucket(mainClassName, mainHash);
+		if (!Files.isDirectory(bucket)) {
+			return Collections.emptyList();
+		}
+		List<Entry> entries = new ArrayList<>();
+		try (Stream<Path> files = Files.list(bucket)) {
+			for (Path file : files.filter(f -> f.toString().endsWith(".iot")).collect(Collectors.toList())) {
+				Entry entry = read(file);
+				if (entry != null && entry.classes.entrySet().stream()
+						.allMatch(c -> c.getValue().equals(classHash(classes, c.getKey(), currentHashes)))) {
+					entries.add(entry);
+				}
+			}
+		} catch (IOException e) {
+			// Unreadable cache. Run the program.
+			return Collections.emptyList();
+		}
+		entries.sort(Comparator.comparing((Entry e) -> lastModified(e.file)).reversed());
+		return entries;
+	}
+
+	/**
+	 * Note that an entry was used, so it is kept over others.
+	 */
+	void touch(Entry entry) {
+		try {
+			Files.setLastModifiedTime(entry.file, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// Evicted meanwhile.
+		}
+	}
+
+	/**
+	 * @param classes the classes the program loaded, with their hashes. Must include the main
+	 *        class.
+	 */
+	void store(String mainClassName, Map<String, String> classes, Transcript transcript) {
+		String mainHash = classes.get(mainClassName);
+		if (mainHash == null) {
+			return;
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeInt(classes.size());
+			for (Map.Entry<String, String> c : new TreeMap<>(classes).entrySet()) {
+				out.writeUTF(c.getKey());
+				out.writeUTF(c.getValue());
+			}
+			transcript.writeTo(out);
+			out.flush();
+
+			Path bucket = bucket(mainClassName, mainHash);
+			Files.createDirectories(bucket);
+			Path file = bucket.resolve(Hashing.sha256(bytes.toByteArray()) + ".iot");
+			if (Files.exists(file)) {
+				touch(new Entry(file, classes, transcript));
+				return;
+			}
+			Path temp = Files.createTempFile(bucket, "entry", ".tmp");
+			try (OutputStream fileOut = Files.newOutputStream(temp);
+					GZIPOutputStream gzip = new GZIPOutputStream(fileOut)) {
+				bytes.writeTo(gzip);
+			}
+			try {
+				Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+			evict();
+		} catch (IOException e) {
+			// Caching is only an optimization.
+		}
+	}
+
+	/**
+	 * Delete the least recently used entries until the cache fits its limit. Only one JVM
+	 * evicts at a time. The others skip it.
+	 */
+	private void evict() throws IOException {
+		synchronized (ResultCache.class) {
+			try (FileChannel lockChannel = FileChannel.open(dir.resolve("lock"),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+					FileLock lock = lockChannel.tryLock()) {
+				if (lock == null) {
+					return;
+				}
+				Map<Path, Long> sizes = new LinkedHashMap<>();
+				try (Stream<Path> files = Files.walk(dir)) {
+					files.filter(f -> f.toString().endsWith(".iot"))
+							.sorted(Comparator.comparing(ResultCache::lastModified))
+							.forEach(f -> sizes.put(f, size(f)));
+				}
+				long total = sizes.values().stream().mapToLong(Long::longValue).sum();
+				for (Map.Entry<Path, Long> file : sizes.entrySet()) {
+					if (total <= maxBytes) {
+						break;
+					}
+					Files.deleteIfExists(file.getKey());
+					total -= file.getValue();
+				}
+			}
+		}
+	}
+
+	private Path bucket(String mainClassName, String mainHash) {
+		return dir.resolve(Hashing.sha256((mainClassName + "\n" + mainHash).getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static Entry read(Path file) {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+			DataInputStream data = new DataInputStream(new GZIPInputStream(in));
+			if (data.readInt() != MAGIC || data.readByte() != VERSION) {
+				return null;
+			}
+			int count = data.readInt();
+			Map<String, String> classes = new HashMap<>();
+			for (int i = 0; i < count; i++) {
+				classes.put(data.readUTF(), data.readUTF());
+			}
+			return new Entry(file, classes, Transcript.readFrom(data));
+		} catch (NoSuchFileException e) {
+			// Evicted meanwhile.
+			return null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the hash of the class's current bytecode, or null if it can't be found.
+	 */
+	private static String classHash(ClassLoader classes, String name, Map<String, String> known) {
+		return known.computeIfAbsent(name, n -> {
+			try {
+				ClassBytesCache.Entry entry = ClassBytesCache.read(classes, n);
+				return entry == null ? null : entry.hash();
+			} catch (IOException e) {
+				return null;
+			}
+		});
+	}
+
+	private static long lastModified(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private static long size(Path file) {
+		try {
+			return Files.size(file);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+}
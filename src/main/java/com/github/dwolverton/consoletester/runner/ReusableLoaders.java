@@ -0,0 +1,147 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shares one {@link TempClassLoader} among all the runs of a program that keeps no state in
+ * static fields, as found by a {@link StaticStateScan}. Since the runs can't affect each
+ * other through its classes, they don't need to be loaded again. Other programs get a new
+ * loader each run.
+ *
+ * <p>A shared loader is replaced when any of the program's class files change, and given up
+ * on if the program loads a class the scan didn't find, for example by reflection. Set the
+ * system property <code>consoletester.reuseLoader</code> to false to always use a new loader.
+ */
+final class ReusableLoaders {
+
+	private static final boolean enabled = Boolean.parseBoolean(System.getProperty("consoletester.reuseLoader", "true"));
+
+	private static class Program {
+		final ReloadPolicy reloadPolicy;
+		final StaticStateScan scan;
+		/** Null if the program can't share one. */
+		TempClassLoader loader;
+
+		Program(ReloadPolicy reloadPolicy, StaticStateScan scan) {
+			this.reloadPolicy = reloadPolicy;
+			this.scan = scan;
+		}
+	}
+
+	// Guarded by itself.
+	private static final Map<ClassLoader, Map<String, Program>> programs = new HashMap<>();
+
+	/** Cannot be instantiated. */
+	private ReusableLoaders() {}
+
+	/**
+	 * A new loader starts loading the program's classes in the background; see
+	 * {@link ClassPreloader}.
+	 * @param metrics records class loading, and whether the loader was shared. May be null.
+	 * @return a loader for a run of the program.
+	 */
+	static TempClassLoader loaderFor(ClassLoader parent, String mainClassName, ReloadPolicy reloadPolicy,
+			RunnerMetrics metrics) {
+		Program program = program(parent, mainClassName, reloadPolicy);
+		String decision;
+		synchronized (program) {
+			if (!enabled) {
+				decision = "new: turned off by consoletester.reuseLoader";
+			} else if (program.loader != null && onlyScannedClasses(program)) {
+				program.loader.setMetrics(metrics);
+				decided(metrics, "shared: no static state");
+				return program.loader;
+			} else if (program.scan.staticState != null) {
+				decision = "new: " + program.scan.staticState;
+			} else {
+				decision = "new, to be shared: no static state";
+			}
+		}
+		decided(metrics, decision);
+		TempClassLoader loader = newLoader(parent, mainClassName, reloadPolicy, metrics, program);
+		if (enabled) {
+			synchronized (program) {
+				if (program.scan.staticState == null && program.loader == null) {
+					program.loader = loader;
+				}
+			}
+		}
+		return loader;
+	}
+
+	/**
+	 * Every new loader for a program's run comes from here, so that it starts loading the
+	 * program's classes in the background; see {@link ClassPreloader}.
+	 * @param metrics records class loading. May be null.
+	 * @return a new loader, which is never shared.
+	 */
+	static TempClassLoader newLoader(ClassLoader parent, String mainClassName, ReloadPolicy reloadPolicy,
+			RunnerMetrics metrics) {
+		return newLoader(parent, mainClassName, reloadPolicy, metrics, program(parent, mainClassName, reloadPolicy));
+	}
+
+	private static TempClassLoader newLoader(ClassLoader parent, String mainClassName, ReloadPolicy reloadPolicy,
+			RunnerMetrics metrics, Program program) {
+		TempClassLoader loader = new TempClassLoader(parent, mainClassName, reloadPolicy, metrics);
+		ClassPreloader.preload(loader, mainClassName, program.scan.classFiles.keySet());
+		return loader;
+	}
+
+	/**
+	 * @return what is known about the program, scanning it again if it has changed.
+	 */
+	private static Program program(ClassLoader parent, String mainClassName, ReloadPolicy reloadPolicy) {
+		Program program;
+		synchronized (programs) {
+			program = programs.computeIfAbsent(parent, p -> new HashMap<>()).get(mainClassName);
+		}
+		if (program == null || program.reloadPolicy != reloadPolicy || !unchanged(program.scan)) {
+			program = new Program(reloadPolicy, StaticStateScan.scan(parent, mainClassName, reloadPolicy));
+			synchronized (programs) {
+				programs.get(parent).put(mainClassName, program);
+			}
+		}
+		return program;
+	}
+
+	private static void decided(RunnerMetrics metrics, String decision) {
+		if (metrics != null) {
+			metrics.setClassLoaderDecision(decision);
+		}
+	}
+
+	/**
+	 * @return false if any of the class files that were scanned have changed since.
+	 */
+	private static boolean unchanged(StaticStateScan scan) {
+		for (Map.Entry<String, URL> classFile : scan.classFiles.entrySet()) {
+			try {
+				if (ClassBytesCache.read(classFile.getValue()) != scan.contents.get(classFile.getKey())) {
+					return false;
+				}
+			} catch (IOException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gives up on sharing the program's loader if it has loaded a class that wasn't scanned.
+	 * @return whether it can still be shared.
+	 */
+	private static boolean onlyScannedClasses(Program program) {
+		for (Class<?> c : program.loader.getDefinedClasses()) {
+			if (!program.scan.contents.containsKey(c.getName())) {
+				program.loader = null;
+				program.scan.staticState = c.getName() + " was loaded without being scanned";
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Keeps only the last part of the echo in memory, to be shown if something goes wrong.
+ */
+public class RingEchoSink implements EchoSink {
+
+	private final byte[] ring;
+	// Total bytes ever written. The ring holds the last of them.
+	private long written;
+
+	/**
+	 * @param capacity how many bytes to keep. Must be positive.
+	 */
+	public RingEchoSink(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		ring = new byte[capacity];
+	}
+
+	@Override
+	public synchronized void output(byte[] b, int off, int len) {
+		if (len > ring.length) {
+			off += len - ring.length;
+			written += len - ring.length;
+			len = ring.length;
+		}
+		int pos = (int) (written % ring.length);
+		int first = Math.min(len, ring.length - pos);
+		System.arraycopy(b, off, ring, pos, first);
+		System.arraycopy(b, off + first, ring, 0, len - first);
+		written += len;
+	}
+
+	@Override
+	public void input(String line) {
+		println("«" + line + "»");
+	}
+
+	@Override
+	public void println(String line) {
+		byte[] bytes = (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+		output(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * @return the last part of the echo. If some was dropped, it starts at the first whole line.
+	 */
+	public synchronized String getText() {
+		if (written <= ring.length) {
+			return new String(ring, 0, (int) written, StandardCharsets.UTF_8);
+		}
+		byte[] bytes = new byte[ring.length];
+		int pos = (int) (written % ring.length);
+		System.arraycopy(ring, pos, bytes, 0, ring.length - pos);
+		System.arraycopy(ring, 0, bytes, ring.length - pos, pos);
+		int start = 0;
+		while (start < bytes.length && bytes[start] != '\n') {
+			start++;
+		}
+		if (start == bytes.length) {
+			// No line break at all. Just skip any partial character.
+			start = 0;
+			while (start < bytes.length && (bytes[start] & 0xC0) == 0x80) {
+				start++;
+			}
+		} else {
+			start++;
+		}
+		return "..." + System.lineSeparator() + new String(bytes, start, bytes.length - start, StandardCharsets.UTF_8);
+	}
+
+}
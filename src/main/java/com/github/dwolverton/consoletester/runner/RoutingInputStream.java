@@ -0,0 +1,56 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+/**
+ * An InputStream that reads from the stream chosen for the current thread.
+ * This lets each running program have its own System.in while the global System.in
+ * only needs to be replaced once.
+ */
+public class RoutingInputStream extends InputStream {
+
+	private final InputStream fallback;
+	private final Supplier<InputStream> router;
+
+	/**
+	 * @param fallback used by any thread that the router does not have a stream for.
+	 * @param router returns the stream for the current thread or null if there is none.
+	 */
+	public RoutingInputStream(InputStream fallback, Supplier<InputStream> router) {
+		this.fallback = fallback;
+		this.router = router;
+	}
+
+	private InputStream target() {
+		InputStream stream = router.get();
+		return stream == null ? fallback : stream;
+	}
+
+	@Override
+	public int read() throws IOException {
+		return target().read();
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		return target().read(b, off, len);
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		return target().skip(n);
+	}
+
+	@Override
+	public int available() throws IOException {
+		return target().available();
+	}
+
+	@Override
+	public void close() throws IOException {
+		target().close();
+	}
+
+}
@@ -0,0 +1,201 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * A PrintStream that forwards everything to the stream chosen for the current thread.
+ * This lets each running program have its own System.out while the global System.out
+ * only needs to be replaced once.
+ */
+public class RoutingPrintStream extends PrintStream {
+
+	private final PrintStream fallback;
+	private final Supplier<PrintStream> router;
+
+	/**
+	 * @param fallback used by any thread that the router does not have a stream for.
+	 * @param router returns the stream for the current thread or null if there is none.
+	 */
+	public RoutingPrintStream(PrintStream fallback, Supplier<PrintStream> router) {
+		// The superclass stream is never written to directly. Every method is forwarded.
+		super(fallback);
+		this.fallback = fallback;
+		this.router = router;
+	}
+
+	private PrintStream target() {
+		PrintStream stream = router.get();
+		return stream == null ? fallback : stream;
+	}
+
+	@Override
+	public void flush() {
+		target().flush();
+	}
+
+	@Override
+	public void close() {
+		target().close();
+	}
+
+	@Override
+	public boolean checkError() {
+		return target().checkError();
+	}
+
+	@Override
+	public void write(int b) {
+		target().write(b);
+	}
+
+	@Override
+	public void write(byte[] buf) throws IOException {
+		target().write(buf);
+	}
+
+	@Override
+	public void write(byte[] buf, int off, int len) {
+		target().write(buf, off, len);
+	}
+
+	@Override
+	public void print(boolean b) {
+		target().print(b);
+	}
+
+	@Override
+	public void print(char c) {
+		target().print(c);
+	}
+
+	@Override
+	public void print(int i) {
+		target().print(i);
+	}
+
+	@Override
+	public void print(long l) {
+		target().print(l);
+	}
+
+	@Override
+	public void print(float f) {
+		target().print(f);
+	}
+
+	@Override
+	public void print(double d) {
+		target().print(d);
+	}
+
+	@Override
+	public void print(char[] s) {
+		target().print(s);
+	}
+
+	@Override
+	public void print(String s) {
+		target().print(s);
+	}
+
+	@Override
+	public void print(Object obj) {
+		target().print(obj);
+	}
+
+	@Override
+	public void println() {
+		target().println();
+	}
+
+	@Override
+	public void println(boolean x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(char x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(int x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(long x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(float x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(double x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(char[] x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(String x) {
+		target().println(x);
+	}
+
+	@Override
+	public void println(Object x) {
+		target().println(x);
+	}
+
+	@Override
+	public PrintStream printf(String format, Object... args) {
+		target().printf(format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream printf(Locale l, String format, Object... args) {
+		target().printf(l, format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream format(String format, Object... args) {
+		target().format(format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream format(Locale l, String format, Object... args) {
+		target().format(l, format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream append(CharSequence csq) {
+		target().append(csq);
+		return this;
+	}
+
+	@Override
+	public PrintStream append(CharSequence csq, int start, int end) {
+		target().append(csq, start, end);
+		return this;
+	}
+
+	@Override
+	public PrintStream append(char c) {
+		target().append(c);
+		return this;
+	}
+
+}
@@ -1,6 +1,8 @@
 package com.github.dwolverton.consoletester.runner;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.function.Consumer;
@@ -9,37 +11,43 @@ import com.github.dwolverton.consoletester.IOTester;
 
 public class Runnables {
 
+	// Shared, so that programs that don't choose a policy can share class loaders.
+	private static final ReloadPolicy defaultReloadPolicy = ReloadPolicy.fromSystemProperty();
+
+	/**
+	 * How to call each class's main method, worked out once per class. Since a class is
+	 * specific to its class loader, this is also per loader, and entries go away along with
+	 * temporary class loaders.
+	 */
+	private static final ClassValue<LaunchPlan> launchPlans = new ClassValue<LaunchPlan>() {
+		@Override
+		protected LaunchPlan computeValue(Class<?> mainClass) {
+			return LaunchPlan.of(mainClass);
+		}
+	};
+
 	public static Runnable fromMainMethod(Consumer<String[]> main) {
 		return () -> main.accept(new String[0]);
 	}
 	
 	public static Runnable fromMainClass(Class<?> mainClass) {
-		try {
-			Method main = mainClass.getMethod("main", String[].class);
-			if (!Modifier.isPublic(main.getModifiers())) {
-				IOTester.fail("main method must be public.");
-			}
-			if (!Modifier.isStatic(main.getModifiers())) {
-				IOTester.fail("main method must be static.");
+		LaunchPlan plan = launchPlans.get(mainClass);
+		if (plan.failure != null) {
+			IOTester.fail(plan.failure);
+		}
+		MethodHandle main = plan.main;
+		return () -> {
+			try {
+				main.invokeExact(new String[0]);
+			} catch (Throwable e) {
+				throw new RuntimeException("An runtime error occurred. See below for details.", e);
 			}
-			return () -> {
-				try {
-					main.invoke(null, (Object) new String[0]);
-				} catch (InvocationTargetException e) {
-					throw new RuntimeException("An runtime error occurred. See below for details.", e.getTargetException());
-				} catch (IllegalAccessException | IllegalArgumentException e) {
-					throw new RuntimeException("Unexpected failure calling main method", e);
-				}
-			};
-		} catch (NoSuchMethodException | SecurityException e) {
-			IOTester.fail("Unable to find main(String[] args) method in class " + mainClass.getName());
-			return null; // this will never actually return because fail() throws.
-		}	
+		};
 	}
 	
 	public static Runnable fromMainClassWithTempClassLoader(Class<?> mainClass) {
-		ClassLoader classLoader = new TempClassLoader(mainClass.getClassLoader());
-		return fromMainClass(classLoader, mainClass.getName());
+		return fromMainClassWithTempClassLoader(mainClass.getClassLoader(), mainClass.getName(),
+				defaultReloadPolicy, null);
 	}
 	
 	public static Runnable fromMainClass(String mainClassName) {
@@ -48,8 +56,24 @@ public class Runnables {
 	}
 	
 	public static Runnable fromMainClassWithTempClassLoader(String mainClassName) {
-		ClassLoader classLoader = new TempClassLoader(Runnables.class.getClassLoader());
-		return fromMainClass(classLoader, mainClassName);
+		return fromMainClassWithTempClassLoader(Runnables.class.getClassLoader(), mainClassName,
+				defaultReloadPolicy, null);
+	}
+	
+	/**
+	 * @return the policy chosen by the <code>consoletester.reload</code> system property.
+	 */
+	static ReloadPolicy defaultReloadPolicy() {
+		return defaultReloadPolicy;
+	}
+	
+	/**
+	 * Shares a loader with the program's earlier runs if it can; see {@link ReusableLoaders}.
+	 * @param metrics records class loading times and the decision. May be null.
+	 */
+	static Runnable fromMainClassWithTempClassLoader(ClassLoader parent, String mainClassName,
+			ReloadPolicy reloadPolicy, RunnerMetrics metrics) {
+		return fromMainClass(ReusableLoaders.loaderFor(parent, mainClassName, reloadPolicy, metrics), mainClassName);
 	}
 	
 	private static Runnable fromMainClass(ClassLoader classLoader, String className) {
@@ -60,4 +84,41 @@ public class Runnables {
 			throw new RuntimeException("Unable to load main class", e);
 		}
 	}
+
+	private static class LaunchPlan {
+		/** main, as <code>(String[])void</code>. */
+		final MethodHandle main;
+		/** Why main can't be called, if it can't. */
+		final String failure;
+
+		private LaunchPlan(MethodHandle main, String failure) {
+			this.main = main;
+			this.failure = failure;
+		}
+
+		static LaunchPlan of(Class<?> mainClass) {
+			try {
+				Method main = mainClass.getMethod("main", String[].class);
+				if (!Modifier.isPublic(main.getModifiers())) {
+					return new LaunchPlan(null, "main method must be public.");
+				}
+				if (!Modifier.isStatic(main.getModifiers())) {
+					return new LaunchPlan(null, "main method must be static.");
+				}
+				try {
+					// Allow a main class that isn't public.
+					main.setAccessible(true);
+				} catch (RuntimeException e) {
+					// Not allowed. Try anyway.
+				}
+				MethodHandle handle = MethodHandles.lookup().unreflect(main)
+						.asType(MethodType.methodType(void.class, String[].class));
+				return new LaunchPlan(handle, null);
+			} catch (NoSuchMethodException | SecurityException e) {
+				return new LaunchPlan(null, "Unable to find main(String[] args) method in class " + mainClass.getName());
+			} catch (IllegalAccessException e) {
+				return new LaunchPlan(null, "Unable to call main method of class " + mainClass.getName());
+			}
+		}
+	}
 }
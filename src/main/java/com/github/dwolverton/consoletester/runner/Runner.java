@@ -1,44 +1,72 @@
 package com.github.dwolverton.consoletester.runner;
 
-import java.io.ByteArrayOutputStream;
-import java.io.Closeable;
 import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
-public class Runner {
+/**
+ * Runs a single console program at a time, capturing its output and feeding it input.
+ * Each Runner instance is independent, so multiple programs can run concurrently in the
+ * same JVM as long as each has its own Runner.
+ */
+public class Runner implements ProgramRunner {
 	
-	private static final int HANG_DETECTION_SECONDS = 3;
+	private static final PrintStream originalStdOut = System.out;
+	private static final InputStream originalStdIn = System.in;
+	private static final ConsoleEcho echo = new ConsoleEcho(originalStdOut,
+			Long.getLong("consoletester.echo.maxPending", 1 << 20));
+	private static final EchoSink consoleSink = new ConsoleEchoSink(echo);
+	// How long terminate waits for the thread of a program that has returned.
+	private static final long END_JOIN_MILLIS = 100;
 	
-	/** Cannot be instantiated. */
-	private Runner() {}
-
-	private static PrintStream originalStdOut = System.out;
-	private static InputStream originalStdIn = System.in;
+	/**
+	 * The session of the program that owns the current thread. Program threads set this when
+	 * they start, and any threads they create inherit it.
+	 */
+	private static final InheritableThreadLocal<Session> current = new InheritableThreadLocal<>();
 	
 	// Before any other code has a chance to store System.in in a variable
-	// such as a static Scanner, switch to a proxy that be able to tap into.
-	private static ProxyInputStream stdInProxy = new ProxyInputStream(originalStdIn);
+	// such as a static Scanner, switch to streams that route each thread's
+	// console I/O to the program that owns it.
 	static {
-		System.setIn(stdInProxy);
+		System.setIn(new RoutingInputStream(originalStdIn, () -> {
+			Session session = current.get();
+			return session == null ? null : session.in;
+		}));
+		// Anything else printed goes through the echo too, to keep it in order with programs'.
+		// Terminated programs that keep printing may be dropped from it like any program.
+		PrintStream detachedOut = new PrintStream(echo.stream(true), true);
+		System.setOut(new RoutingPrintStream(new PrintStream(echo.stream(false), true), () -> {
+			Session session = current.get();
+			if (session == null) {
+				return null;
+			}
+			return session.attached ? session.out : detachedOut;
+		}));
 	}
 
-	private static BlockingQueue<IOBlock> queue = new LinkedBlockingQueue<>();
-
-	private static ByteArrayOutputStream outStream = new ByteArrayOutputStream();
-	private static PrintStream stdOutPrintStream;
-	private static PipedInputStream stdInInputStream;
-	private static PipedOutputStream stdInOutputStream;
-	private static PrintStream stdInPrintStream;
-	private static Thread thread;
-	private static boolean suppressStackTrace;
+	private Session session;
+	// A session whose program stopped cleanly, kept to reuse its streams and buffers.
+	private Session spare;
+	private HangDetector hangDetector = HangDetector.DEFAULT;
+	private boolean virtualThreads = Boolean.getBoolean("consoletester.virtualThreads");
+	private int maxPendingOutput = Integer.getInteger("consoletester.output.maxPending", 16 << 20);
+	private EchoSink echoSink = consoleSink;
+	private RunnerMetrics metrics = new RunnerMetrics();
+	private ReloadPolicy reloadPolicy = Runnables.defaultReloadPolicy();
+	private boolean keepClassLoader = Boolean.getBoolean("consoletester.keepLoader");
+	// The kept class loader of the current program, if it has one.
+	private KeptLoader keptLoader;
 	
 	/**
 	 * A dummy method just to make sure that the above static initialization runs.
@@ -47,126 +75,518 @@ public class Runner {
 	 * run.
 	 */
 	public static void init() {}
+
+	/**
+	 * @return the number of terminated programs that are still running because they did not
+	 *         respond to being interrupted.
+	 */
+	public static int getZombieCount() {
+		return Reaper.zombieCount();
+	}
+
+	static EchoSink consoleSink() {
+		return consoleSink;
+	}
 	
-	public static synchronized void start(Runnable runnable) {
-		if (thread != null) {
-			throw new RuntimeException("IOTester Runner was already started. It must be terminated before starting again.");
+	@Override
+	public void start(Class<?> mainClass) {
+		start(mainClass.getClassLoader(), mainClass.getName());
+	}
+
+	@Override
+	public void start(String mainClassName) {
+		start(Runnables.class.getClassLoader(), mainClassName);
+	}
+
+	private synchronized void start(ClassLoader classes, String mainClassName) {
+		if (!keepClassLoader) {
+			start(Runnables.fromMainClassWithTempClassLoader(classes, mainClassName, reloadPolicy, metrics),
+					mainClassName);
+			return;
 		}
-		outStream.reset();
+		KeptLoader kept = KeptLoader.acquire(classes, mainClassName, reloadPolicy);
 		try {
-			stdInInputStream = new PipedInputStream();
-			stdInOutputStream = new PipedOutputStream(stdInInputStream);
-			stdInPrintStream = new PrintStream(stdInOutputStream);
+			start(kept.program(metrics), mainClassName);
+		} catch (RuntimeException e) {
+			kept.release(true);
+			throw e;
+		}
+		keptLoader = kept;
+	}
 
-			stdOutPrintStream = new PrintStream(new TeeOutputStream(outStream, originalStdOut), true, "UTF-8");
-			System.setOut(stdOutPrintStream);
-			stdInProxy.setInputStream(new TappedInputStream(stdInInputStream));
-		} catch (IOException e) {
-			cleanUp();
-			throw new RuntimeException(e);
+	@Override
+	public void start(Runnable runnable) {
+		start(runnable, runnable.getClass().getName());
+	}
+
+	/**
+	 * @param program names the program in profiling events.
+	 */
+	private synchronized void start(Runnable runnable, String program) {
+		if (session != null) {
+			throw new RuntimeException("IOTester Runner was already started. It must be terminated before starting again.");
 		}
+		Session s = spare != null ? spare : new Session();
+		spare = null;
+		s.reset(maxPendingOutput, echoSink, metrics);
+		session = s;
+		JfrEvents.programStarted(program);
 		
-		thread = new Thread(() -> {
+		s.execution = ProgramThreads.start(() -> {
+			current.set(s);
 			RuntimeException exception = null;
 			try {
 				runnable.run();
 			} catch (RuntimeException e) {
 				exception = e;
-				if (!suppressStackTrace) {
+				if (!s.suppressStackTrace) {
 					e.printStackTrace();
 				}
 			} finally {
-				String output = flushOutput();
-				BlockEndType endType = exception == null ? BlockEndType.END
-						: BlockEndType.EXCEPTION;
-				queue.offer(new IOBlock(output, endType));
+				s.programPaused();
+				s.ended = true;
+				s.queue.offer(s.endBlock(exception == null ? BlockEndType.END : BlockEndType.EXCEPTION));
+				// The thread may go on to run someone else's program.
+				current.remove();
 			}
-		});
-		thread.start();
+		}, virtualThreads);
+	}
+
+	@Override
+	public void setHangDetector(HangDetector hangDetector) {
+		this.hangDetector = hangDetector;
+	}
+
+	/**
+	 * Choose which classes of a main class program are loaded fresh for each run. The
+	 * default is set by the <code>consoletester.reload</code> system property. See
+	 * {@link ReloadPolicy}.
+	 */
+	public void setReloadPolicy(ReloadPolicy reloadPolicy) {
+		this.reloadPolicy = reloadPolicy;
 	}
 
-	public static IOBlock nextBlock() {
+	ReloadPolicy getReloadPolicy() {
+		return reloadPolicy;
+	}
+
+	/**
+	 * Keep one class loader for all the runs of each main class, instead of a new one per run,
+	 * so that its code stays loaded and compiled. Its static fields are reset before each run
+	 * instead, when they can be; see {@link KeptLoader}. Defaults to the
+	 * <code>consoletester.keepLoader</code> system property, or false.
+	 */
+	public void setKeepClassLoader(boolean keepClassLoader) {
+		this.keepClassLoader = keepClassLoader;
+	}
+
+	/**
+	 * Set the most output, in characters, a program may get ahead of the test while the test
+	 * is busy elsewhere. The program is paused until the test waits for it again. Defaults to
+	 * the <code>consoletester.output.maxPending</code> system property, or 16M.
+	 */
+	public void setMaxPendingOutput(int maxPendingOutput) {
+		this.maxPendingOutput = maxPendingOutput;
+	}
+
+	/**
+	 * Defaults to {@link EchoSink#console()}. Also applies to a program that is running.
+	 */
+	@Override
+	public void setEchoSink(EchoSink echoSink) {
+		this.echoSink = echoSink;
+		Session s = session;
+		if (s != null) {
+			s.echoSink = echoSink;
+		}
+	}
+
+	@Override
+	public void setMetrics(RunnerMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Defaults to the <code>consoletester.virtualThreads</code> system property.
+	 */
+	@Override
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	@Override
+	public IOBlock nextBlock() {
+		return nextBlock(null);
+	}
+
+	/**
+	 * While the test isn't waiting here, a program that gets too far ahead of it is paused.
+	 * See {@link #setMaxPendingOutput(int)}.
+	 */
+	@Override
+	public IOBlock nextBlock(Predicate<CharSequence> enough) {
+		Session s = session;
+		if (s == null) {
+			// Nothing is running, so there is nothing more to come.
+			return new IOBlock("", BlockEndType.END);
+		}
+		s.setDraining(true);
+		long waitStart = System.nanoTime();
 		try {
-			IOBlock block = queue.poll(HANG_DETECTION_SECONDS, TimeUnit.SECONDS);
-			if (block == null) {
-				return new IOBlock(flushOutput(), BlockEndType.HANG);
-			} else {
-				return block;
+			// Output and reads of input are progress.
+			HangDetector.Watch watch = hangDetector.watch(s.execution, () -> s.outputBuffer.byteCount() + s.reads);
+			int checkedLength = -1;
+			while (true) {
+				if (enough != null) {
+					CharSequence output = s.peekOutput();
+					if (output.length() != checkedLength) {
+						checkedLength = output.length();
+						if (enough.test(output)) {
+							return new IOBlock(output, BlockEndType.RUNNING);
+						}
+					}
+				}
+				IOBlock block = s.queue.poll(HangDetector.SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+				if (block != null) {
+					return block;
+				}
+				if (watch.isOutOfTime()) {
+					return s.endBlock(BlockEndType.TIMEOUT);
+				}
+				if (watch.isHung()) {
+					return s.endBlock(BlockEndType.HANG);
+				}
 			}
 		} catch (InterruptedException e) {
 			throw new RuntimeException(
 					"Unexpected interrupt of test thread. This is likely a problem with the test, not your code.");
+		} finally {
+			s.setDraining(false);
+			metrics.getNextBlockWaitNanos().record(System.nanoTime() - waitStart);
 		}
 	}
 	
-	public static void in(Object line) {
-		originalStdOut.println("«" + line + "»");
-		stdInPrintStream.println(line);
-		stdInPrintStream.flush();
+	@Override
+	public void in(Object line) {
+		Session s = session;
+		if (s != null) {
+			s.give(String.valueOf(line));
+		} else {
+			echoSink.input(String.valueOf(line));
+		}
 	}
-	
-	public static synchronized void terminate(boolean suppressStackTrace) {
-		if (thread == null) {
+
+	@Override
+	public void script(List<?> lines) {
+		Session s = session;
+		if (s != null) {
+			s.script(lines);
+		}
+	}
+
+	/**
+	 * Returns right away. A program that doesn't stop when interrupted is left to the
+	 * {@link Reaper}, cut off from this Runner so that it can't affect the next program. Any
+	 * file its output spilled to is released once it stops.
+	 */
+	@Override
+	public synchronized void terminate(boolean suppressStackTrace) {
+		Session s = session;
+		if (s == null) {
 			return;
 		}
-		Runner.suppressStackTrace = suppressStackTrace;
-		if (thread.isAlive()) {
-			thread.interrupt();
+		session = null;
+		s.suppressStackTrace = suppressStackTrace;
+		s.metrics.getBlocksPerRun().record(s.blocks);
+		Object event = JfrEvents.beginTerminate();
+		KeptLoader kept = keptLoader;
+		keptLoader = null;
+		if (s.ended && !s.execution.isDone()) {
+			// The program returned, so its thread is only moments from being done.
+			try {
+				s.execution.join(END_JOIN_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
 		}
-		try {
-			thread.join(3000);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		} finally {
-			cleanUp();
-			Runner.suppressStackTrace = false;
+		if (s.execution.isDone()) {
+			s.detach();
+			if (s.outputBuffer.isSpilled()) {
+				// Not worth keeping a file open for, in case this Runner isn't used again.
+				s.outputBuffer.close();
+			} else {
+				spare = s;
+			}
+			if (kept != null) {
+				kept.release(true);
+			}
+			JfrEvents.endTerminate(event, true);
+			return;
+		}
+		if (kept != null) {
+			kept.release(false);
 		}
+		s.execution.interrupt();
+		s.detach();
+		// Let the program see the end of its input in case it is reading.
+		s.inChannel.close();
+		Reaper.adopt(s.execution, s.outputBuffer::close);
+		JfrEvents.endTerminate(event, false);
 	}
 
-	private static String flushOutput() {
-		stdOutPrintStream.flush();
-		String output = new String(outStream.toByteArray(),
-				StandardCharsets.UTF_8);
-		outStream.reset();
-		return output;
+	/**
+	 * End the current block right away as the given type, without waiting for the program.
+	 */
+	IOBlock endBlock(BlockEndType endType) {
+		Session s = session;
+		return s == null ? new IOBlock("", endType) : s.endBlock(endType);
 	}
 
-	private static void markInput() {
-		queue.offer(new IOBlock(flushOutput(), BlockEndType.INPUT));
+	/**
+	 * @return the current program, or null if none is running.
+	 */
+	synchronized ProgramThreads.Execution programExecution() {
+		return session == null ? null : session.execution;
 	}
 
-	private static void cleanUp() {
-		queue.clear();
-		stdOutPrintStream = null;
-		closeSilently(stdInInputStream);
-		stdInInputStream = null;
-		closeSilently(stdInOutputStream);
-		stdInOutputStream = null;
-		closeSilently(stdInPrintStream);
-		stdInPrintStream = null;
-		thread = null;
-		System.setOut(originalStdOut);
-		stdInProxy.setInputStream(originalStdIn);
-	}
+	/**
+	 * Everything belonging to one run of a program. A program that won't stop keeps its
+	 * session, so anything it does later can't reach the next program.
+	 */
+	private static class Session {
+		final BlockChannel queue = new BlockChannel();
+		final OutputBuffer outputBuffer = new OutputBuffer();
+		final PrintStream out;
+		final InputChannel inChannel = new InputChannel();
+		final InputStream in = new TappedInputStream(this);
+		volatile boolean attached;
+		volatile boolean suppressStackTrace;
+		// Whether the program has returned. Its thread may still be cleaning up.
+		volatile boolean ended;
+		volatile EchoSink echoSink;
+		volatile RunnerMetrics metrics;
+		// When the program last started working on a block.
+		private volatile long runningSince;
+		private volatile int blocks;
+		// The number of reads of input so far.
+		volatile long reads;
+		private long blockStartBytes;
+		ProgramThreads.Execution execution;
+		private volatile int blockStart;
+		private volatile int maxPending;
+		// Whether the test is waiting for output. Guarded by capacityLock.
+		private boolean draining;
+		private final Object capacityLock = new Object();
+		// Lines from a script not given to the program yet. Guarded by inputLock.
+		private final ArrayDeque<String> scripted = new ArrayDeque<>();
+		// Whether the program is waiting for input that hasn't been given. Guarded by inputLock.
+		private boolean awaitingInput;
+		private final Object inputLock = new Object();
 
-	private static void closeSilently(Closeable closeable) {
-		if (closeable != null) {
+		Session() {
 			try {
-				closeable.close();
-			} catch (IOException e) {
+				out = new PrintStream(new PacedOutputStream(this, new TeeOutputStream(outputBuffer, new EchoOutputStream(this))),
+						true, "UTF-8");
+			} catch (UnsupportedEncodingException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		/**
+		 * Prepare for a new run. The previous program must have stopped.
+		 */
+		void reset(int maxPending, EchoSink echoSink, RunnerMetrics metrics) {
+			this.maxPending = maxPending;
+			this.echoSink = echoSink;
+			this.metrics = metrics;
+			runningSince = System.nanoTime();
+			blocks = 0;
+			ended = false;
+			queue.clear();
+			synchronized (this) {
+				outputBuffer.reset();
+				blockStart = 0;
+				blockStartBytes = 0;
+			}
+			inChannel.reset();
+			synchronized (inputLock) {
+				scripted.clear();
+				awaitingInput = false;
+			}
+			suppressStackTrace = false;
+			attached = true;
+		}
+
+		void detach() {
+			synchronized (capacityLock) {
+				attached = false;
+				capacityLock.notifyAll();
+			}
+		}
+
+		void setDraining(boolean draining) {
+			synchronized (capacityLock) {
+				this.draining = draining;
+				capacityLock.notifyAll();
+			}
+		}
+
+		/**
+		 * Pause the program while it is too far ahead of a test that isn't waiting for it.
+		 */
+		void awaitCapacity() throws InterruptedIOException {
+			if (outputBuffer.length() - blockStart < maxPending) {
+				return;
+			}
+			synchronized (capacityLock) {
+				while (!draining && attached && outputBuffer.length() - blockStart >= maxPending) {
+					try {
+						capacityLock.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while output was paused");
+					}
+				}
+			}
+		}
+
+		/**
+		 * @return the current block's output so far, without ending the block.
+		 */
+		synchronized CharSequence peekOutput() {
+			return outputBuffer.view(blockStart, outputBuffer.length());
+		}
+
+		IOBlock endBlock(BlockEndType endType) {
+			out.flush();
+			long blockBytes;
+			CharSequence output;
+			synchronized (this) {
+				int end = outputBuffer.length();
+				output = outputBuffer.view(blockStart, end);
+				blockStart = end;
+				long bytes = outputBuffer.byteCount();
+				blockBytes = bytes - blockStartBytes;
+				blockStartBytes = bytes;
+				blocks++;
+			}
+			metrics.getBlockBytes().record(blockBytes);
+			JfrEvents.blockEnded(endType, blockBytes);
+			return new IOBlock(output, endType);
+		}
+
+		/**
+		 * The program finished a block and is waiting for input or has ended.
+		 */
+		void programPaused() {
+			metrics.getProgramNanos().record(System.nanoTime() - runningSince);
+		}
+
+		void markInput() {
+			programPaused();
+			queue.offer(endBlock(BlockEndType.INPUT));
+			synchronized (inputLock) {
+				awaitingInput = true;
+				giveScripted();
+			}
+		}
+
+		void give(String line) {
+			synchronized (inputLock) {
+				awaitingInput = false;
+				write(line, false);
 			}
 		}
+
+		void script(List<?> lines) {
+			synchronized (inputLock) {
+				for (Object line : lines) {
+					scripted.add(String.valueOf(line));
+				}
+				giveScripted();
+			}
+		}
+
+		private void giveScripted() {
+			if (awaitingInput && !scripted.isEmpty()) {
+				awaitingInput = false;
+				write(scripted.poll(), true);
+			}
+		}
+
+		private void write(String line, boolean fromScript) {
+			runningSince = System.nanoTime();
+			echoSink.input(line);
+			JfrEvents.inputDelivered(line.length(), fromScript);
+			inChannel.write((line + System.lineSeparator()).getBytes(Charset.defaultCharset()));
+		}
+	}
+
+	private static class PacedOutputStream extends FilterOutputStream {
+
+		private final Session session;
+
+		public PacedOutputStream(Session session, OutputStream out) {
+			super(out);
+			this.session = session;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			session.awaitCapacity();
+			out.write(b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			session.awaitCapacity();
+			out.write(b, off, len);
+		}
+
+	}
+
+	private static class EchoOutputStream extends OutputStream {
+
+		private final Session session;
+
+		public EchoOutputStream(Session session) {
+			this.session = session;
+		}
+
+		@Override
+		public void write(int b) {
+			session.echoSink.output(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			session.echoSink.output(b, off, len);
+		}
+
 	}
 
 	private static class TappedInputStream extends FilterInputStream {
 
-		public TappedInputStream(InputStream in) {
-			super(in);
+		private final Session session;
+
+		public TappedInputStream(Session session) {
+			super(session.inChannel);
+			this.session = session;
+		}
+
+		@Override
+		public int read() throws IOException {
+			session.reads++;
+			return super.read();
 		}
 
 		@Override
 		public int read(byte[] b, int off, int len) throws IOException {
-			markInput();
+			// Only a read that has to wait for the test is the end of a block.
+			if (in.available() == 0) {
+				session.markInput();
+			}
+			session.reads++;
 			return super.read(b, off, len);
 		}
 
@@ -0,0 +1,183 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Where the time goes while testing programs. An {@link com.github.dwolverton.consoletester.IOTester}
+ * and its runner record into one of these. Safe to record into from several threads.
+ */
+public class RunnerMetrics {
+
+	/**
+	 * Summarizes a series of values. Percentiles are approximate: values are counted in
+	 * power-of-two buckets.
+	 */
+	public static class Histogram {
+		private final long[] buckets = new long[64];
+		private long count;
+		private long sum;
+		private long min = Long.MAX_VALUE;
+		private long max = Long.MIN_VALUE;
+
+		public synchronized void record(long value) {
+			value = Math.max(0, value);
+			// Bucket i holds values below 2^i, and at least 2^(i-1).
+			buckets[64 - Long.numberOfLeadingZeros(value)]++;
+			count++;
+			sum += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+		public synchronized long getCount() {
+			return count;
+		}
+
+		public synchronized long getSum() {
+			return sum;
+		}
+
+		/**
+		 * @return the smallest value, or 0 if there are none.
+		 */
+		public synchronized long getMin() {
+			return count == 0 ? 0 : min;
+		}
+
+		/**
+		 * @return the largest value, or 0 if there are none.
+		 */
+		public synchronized long getMax() {
+			return count == 0 ? 0 : max;
+		}
+
+		public synchronized double getMean() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		/**
+		 * @param fraction for example 0.99 for the 99th percentile.
+		 * @return a value that at least that fraction of the values are no larger than. Never
+		 *         more than twice the actual percentile.
+		 */
+		public synchronized long getPercentile(double fraction) {
+			if (count == 0) {
+				return 0;
+			}
+			long rank = (long) Math.ceil(fraction * count);
+			long seen = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				seen += buckets[i];
+				if (seen >= Math.max(rank, 1)) {
+					long upper = i == 63 ? Long.MAX_VALUE : (1L << i) - 1;
+					return Math.min(upper, max);
+				}
+			}
+			return max;
+		}
+
+		/**
+		 * @param scale divides every value, for example to show nanoseconds as milliseconds.
+		 */
+		synchronized String summary(long scale, String unit) {
+			if (count == 0) {
+				return "none";
+			}
+			return String.format("count=%d sum=%.1f%s mean=%.2f%s p50=%.2f%s p99=%.2f%s max=%.2f%s",
+					count, (double) sum / scale, unit, getMean() / scale, unit,
+					(double) getPercentile(0.5) / scale, unit, (double) getPercentile(0.99) / scale, unit,
+					(double) max / scale, unit);
+		}
+	}
+
+	private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final Histogram nextBlockWaitNanos = new Histogram();
+	private final Histogram programNanos = new Histogram();
+	private final Histogram blockBytes = new Histogram();
+	private final Histogram blocksPerRun = new Histogram();
+	private final Histogram matchNanos = new Histogram();
+	private final Histogram classLoadNanos = new Histogram();
+	private volatile String classLoaderDecision;
+
+	/**
+	 * @return how long the test waited in each call to {@link ProgramRunner#nextBlock()}.
+	 */
+	public Histogram getNextBlockWaitNanos() {
+		return nextBlockWaitNanos;
+	}
+
+	/**
+	 * @return how long the program ran for each block, from when it started or was given
+	 *         input until it finished the block.
+	 */
+	public Histogram getProgramNanos() {
+		return programNanos;
+	}
+
+	/**
+	 * @return how many bytes of output were captured in each block.
+	 */
+	public Histogram getBlockBytes() {
+		return blockBytes;
+	}
+
+	/**
+	 * @return how many blocks each run of a program had.
+	 */
+	public Histogram getBlocksPerRun() {
+		return blocksPerRun;
+	}
+
+	/**
+	 * @return how long each search of the output for a {@link com.github.dwolverton.consoletester.match.Match} took.
+	 */
+	public Histogram getMatchNanos() {
+		return matchNanos;
+	}
+
+	/**
+	 * @return how long each class took to load with a {@link TempClassLoader}.
+	 */
+	public Histogram getClassLoadNanos() {
+		return classLoadNanos;
+	}
+
+	/**
+	 * @return whether the last program run with a {@link TempClassLoader} got a new one or
+	 *         shared one with its earlier runs, and why. Null if there hasn't been one.
+	 */
+	public String getClassLoaderDecision() {
+		return classLoaderDecision;
+	}
+
+	void setClassLoaderDecision(String classLoaderDecision) {
+		this.classLoaderDecision = classLoaderDecision;
+	}
+
+	/**
+	 * @return a readable summary of each metric that has been recorded, by name.
+	 */
+	public Map<String, String> toMap() {
+		Map<String, String> map = new LinkedHashMap<>();
+		put(map, "nextBlockWait", nextBlockWaitNanos, NANOS_PER_MILLI, "ms");
+		put(map, "programTime", programNanos, NANOS_PER_MILLI, "ms");
+		put(map, "blockBytes", blockBytes, 1, "");
+		put(map, "blocksPerRun", blocksPerRun, 1, "");
+		put(map, "matchTime", matchNanos, NANOS_PER_MILLI, "ms");
+		put(map, "classLoadTime", classLoadNanos, NANOS_PER_MILLI, "ms");
+		if (classLoaderDecision != null) {
+			map.put("classLoader", classLoaderDecision);
+		}
+		return map;
+	}
+
+	private static void put(Map<String, String> map, String name, Histogram histogram, long scale, String unit) {
+		if (histogram.getCount() > 0) {
+			map.put(name, histogram.summary(scale, unit));
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The values of the static fields of some classes, saved so that they can be put back.
+ *
+ * <p>Only values that can't change can be restored, along with the contents of arrays of
+ * them. A field that refers to anything else, such as a Scanner or a List, makes the state
+ * unrestorable, since the object it refers to may have changed too. The fields of
+ * enum constants are saved along with the static fields of their enum, so fields may refer
+ * to enum constants.
+ */
+final class StaticState {
+
+	private static class Saved {
+		/** The enum constant whose field this is, or null for a static field. */
+		final Object owner;
+		final Field field;
+		final Object value;
+		/** A copy of the array's contents if the value is an array, otherwise null. */
+		final Object contents;
+
+		Saved(Object owner, Field field, Object value, Object contents) {
+			this.owner = owner;
+			this.field = field;
+			this.value = value;
+			this.contents = contents;
+		}
+	}
+
+	private final List<Saved> saved = new ArrayList<>();
+	private final int classCount;
+	private String unrestorable;
+
+	private StaticState(int classCount) {
+		this.classCount = classCount;
+	}
+
+	/**
+	 * Save the static fields of the classes, and the fields of their enum constants.
+	 * @param classes initialized classes.
+	 */
+	static StaticState capture(List<Class<?>> classes) {
+		StaticState state = new StaticState(classes.size());
+		for (Class<?> c : classes) {
+			try {
+				for (Field field : c.getDeclaredFields()) {
+					if (Modifier.isStatic(field.getModifiers()) && !state.save(null, field)) {
+						return state;
+					}
+				}
+				if (c.isEnum()) {
+					for (Object constant : c.getEnumConstants()) {
+						// Constants with a body are instances of a subclass.
+						for (Class<?> k = constant.getClass(); k != Enum.class; k = k.getSuperclass()) {
+							for (Field field : k.getDeclaredFields()) {
+								if (!Modifier.isStatic(field.getModifiers()) && !state.save(constant, field)) {
+									return state;
+								}
+							}
+						}
+					}
+				}
+			} catch (LinkageError e) {
+				state.unrestorable = "the fields of " + c.getName() + " can't be read";
+				return state;
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * @param owner the enum constant whose field it is, or null for a static field.
+	 * @return false if the field makes the state unrestorable.
+	 */
+	private boolean save(Object owner, Field field) {
+		String name = field.getDeclaringClass().getName() + "." + (owner == null ? "" : ((Enum<?>) owner).name() + ".") + field.getName();
+		try {
+			field.setAccessible(true);
+			Object value = field.get(owner);
+			Object contents = null;
+			if (value != null && value.getClass().isArray()) {
+				if (!isImmutable(value.getClass().getComponentType())) {
+					unrestorable = name + " holds an array of mutable objects";
+					return false;
+				}
+				contents = copy(value);
+			} else if (value != null && !isImmutable(value.getClass())) {
+				unrestorable = name + " holds a " + value.getClass().getName();
+				return false;
+			} else if (Modifier.isFinal(field.getModifiers())) {
+				// Can't change.
+				return true;
+			}
+			saved.add(new Saved(owner, field, value, contents));
+			return true;
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			unrestorable = name + " can't be read";
+			return false;
+		}
+	}
+
+	/**
+	 * @return why the state can't be restored, or null if it can.
+	 */
+	String getUnrestorableReason() {
+		return unrestorable;
+	}
+
+	/**
+	 * @return how many classes were captured.
+	 */
+	int getClassCount() {
+		return classCount;
+	}
+
+	/**
+	 * Put back the values that were captured. Only call if the state is restorable.
+	 */
+	void restore() throws IllegalAccessException {
+		for (Saved s : saved) {
+			if (s.contents != null) {
+				System.arraycopy(s.contents, 0, s.value, 0, Array.getLength(s.contents));
+			}
+			if (!Modifier.isFinal(s.field.getModifiers())) {
+				s.field.set(s.owner, s.value);
+			}
+		}
+	}
+
+	private static Object copy(Object array) {
+		int length = Array.getLength(array);
+		Object copy = Array.newInstance(array.getClass().getComponentType(), length);
+		System.arraycopy(array, 0, copy, 0, length);
+		return copy;
+	}
+
+	private static boolean isImmutable(Class<?> type) {
+		return type.isPrimitive() || Enum.class.isAssignableFrom(type) || type == String.class
+				|| type == Class.class || type == Integer.class || type == Long.class || type == Double.class || type == Float.class
+				|| type == Short.class || type == Byte.class || type == Character.class || type == Boolean.class
+				|| type == java.math.BigInteger.class || type == java.math.BigDecimal.class;
+	}
+
+}
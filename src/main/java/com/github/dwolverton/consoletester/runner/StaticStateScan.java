@@ -0,0 +1,129 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the class files of a program to tell whether it keeps any state in static fields.
+ * If it doesn't, its classes can be loaded once and shared by all of its runs.
+ *
+ * <p>The program's classes are its main class and every class it refers to, directly or not,
+ * that its {@link ReloadPolicy} reloads. A class has no static state if each of its static
+ * fields is a final compile-time constant and it has no static initializer. Enums are
+ * allowed their constants, as long as their fields are final and hold primitives, strings
+ * or boxes, and creating the constants does nothing else (see
+ * {@link ClassFile#initializerSideEffect()}). Classes that are only found by reflection
+ * aren't seen; see {@link ReusableLoaders}.
+ */
+final class StaticStateScan {
+
+	/** The types of enum fields whose values can't change. */
+	private static final Set<String> IMMUTABLE_DESCRIPTORS = new HashSet<>(Arrays.asList(
+			"Z", "B", "C", "S", "I", "J", "F", "D", "Ljava/lang/String;", "Ljava/lang/Boolean;",
+			"Ljava/lang/Byte;", "Ljava/lang/Character;", "Ljava/lang/Short;", "Ljava/lang/Integer;",
+			"Ljava/lang/Long;", "Ljava/lang/Float;", "Ljava/lang/Double;", "Ljava/math/BigInteger;",
+			"Ljava/math/BigDecimal;"));
+
+	/** Finds the JDK's classes, which are never reloaded. */
+	private static final ClassLoader jdk = ClassLoader.getSystemClassLoader().getParent();
+
+	/** The class files that were read, by class name. */
+	final Map<String, URL> classFiles = new LinkedHashMap<>();
+	/** The same class files' contents, by class name. */
+	final Map<String, ClassBytesCache.Entry> contents = new LinkedHashMap<>();
+	/** The first static state that was found, or null if none. */
+	volatile String staticState;
+
+	private StaticStateScan() {}
+
+	static StaticStateScan scan(ClassLoader classes, String mainClassName, ReloadPolicy reloadPolicy) {
+		StaticStateScan scan = new StaticStateScan();
+		String mainRoot = TempClassLoader.root(classes, mainClassName);
+		Set<String> seen = new HashSet<>();
+		ArrayDeque<String> toRead = new ArrayDeque<>();
+		toRead.add(mainClassName);
+		seen.add(mainClassName);
+		while (!toRead.isEmpty()) {
+			String name = toRead.poll();
+			String resourceName = ClassBytesCache.resourceName(name);
+			URL url = classes.getResource(resourceName);
+			if (url == null || jdk.getResource(resourceName) != null || !reloadPolicy.reload(name, url, mainRoot)) {
+				continue;
+			}
+			try {
+				ClassBytesCache.Entry entry = ClassBytesCache.read(url);
+				scan.classFiles.put(name, url);
+				scan.contents.put(name, entry);
+				for (String referenced : scan.read(name, entry.bytes())) {
+					if (seen.add(referenced)) {
+						toRead.add(referenced);
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				if (scan.staticState == null) {
+					scan.staticState = name + " could not be read";
+				}
+			}
+		}
+		return scan;
+	}
+
+	/**
+	 * Sets staticState if the class has any.
+	 * @return the names of the classes the class refers to.
+	 */
+	private List<String> read(String className, byte[] bytes) throws IOException {
+		ClassFile classFile = ClassFile.parse(bytes);
+		if (staticState == null) {
+			// Only the first is reported.
+			staticState = staticState(className, classFile);
+		}
+		return classFile.referencedClasses();
+	}
+
+	/**
+	 * @return the class's first static state, or null if it has none.
+	 */
+	private static String staticState(String className, ClassFile classFile) {
+		boolean isEnum = classFile.isEnum();
+		for (ClassFile.Member field : classFile.fields) {
+			String name = className + "." + field.name;
+			if (field.isStatic() && !field.isFinal()) {
+				return name + " is a static field that isn't final";
+			} else if (field.isStatic() && !field.constant && !(isEnum && isEnumConstantOrValues(field))) {
+				return name + " is a static field set when the class is initialized";
+			} else if (!field.isStatic() && isEnum && !field.isFinal()) {
+				return name + " is an enum field that isn't final";
+			} else if (!field.isStatic() && isEnum && !IMMUTABLE_DESCRIPTORS.contains(field.descriptor)) {
+				return name + " is an enum field that may refer to a mutable object";
+			}
+		}
+		if (isEnum) {
+			// Creating the constants must do nothing else, in the constructors too.
+			String effect = classFile.initializerSideEffect();
+			if (effect != null) {
+				return "the static initializer of " + className + " " + effect;
+			}
+			return null;
+		}
+		for (ClassFile.Member method : classFile.methods) {
+			if (method.name.equals("<clinit>")) {
+				return className + " has a static initializer";
+			}
+		}
+		return null;
+	}
+
+	private static boolean isEnumConstantOrValues(ClassFile.Member field) {
+		return (field.access & ClassFile.ACC_ENUM) != 0
+				|| (field.access & ClassFile.ACC_SYNTHETIC) != 0 && field.name.equals("$VALUES");
+	}
+
+}
@@ -1,46 +1,97 @@
 package com.github.dwolverton.consoletester.runner;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This is designed to work around the problem that when running multiple test cases
  * if the code under test has static fields they will not be reset.
  * 
- * The solution here is to load the classes under test freshly with each run.
+ * The solution here is to load the classes under test freshly with each run. Their
+ * bytecode is only read once, from a {@link ClassBytesCache}. Which classes count as under
+ * test is up to a {@link ReloadPolicy}. Others are loaded by the parent as usual.
  */
 public class TempClassLoader extends ClassLoader {
+
+	static {
+		// Classes are loaded by locks per name, so a program's classes can be loaded in the
+		// background while it runs. See ClassPreloader.
+		registerAsParallelCapable();
+	}
 	
 	private ClassLoader parent;
+	private final Map<String, String> loadedClasses = new ConcurrentHashMap<>();
+	// The classes this loader has defined, in the order it defined them.
+	private final List<Class<?>> definedClasses = Collections.synchronizedList(new ArrayList<>());
+	private volatile RunnerMetrics metrics;
+	private final ReloadPolicy reloadPolicy;
+	private final String mainRoot;
 	
+	/**
+	 * Reloads every class that isn't part of the JDK.
+	 */
 	public TempClassLoader(ClassLoader parent) {
+		this(parent, null);
+	}
+	
+	/**
+	 * Reloads every class that isn't part of the JDK.
+	 * @param metrics records how long each class takes to load. May be null.
+	 */
+	public TempClassLoader(ClassLoader parent, RunnerMetrics metrics) {
+		this(parent, null, ReloadPolicy.all(), metrics);
+	}
+	
+	/**
+	 * @param mainClassName the program's main class, which the policy may decide by. May be null.
+	 * @param metrics records how long each class takes to load. May be null.
+	 */
+	public TempClassLoader(ClassLoader parent, String mainClassName, ReloadPolicy reloadPolicy, RunnerMetrics metrics) {
 		// Give the superclass a null parent so that it does not automatically
 		// resolve classes that have been loaded already.
         super(null);
         this.parent = parent;
+        this.metrics = metrics;
+        this.reloadPolicy = reloadPolicy;
+        this.mainRoot = mainClassName == null ? null : root(parent, mainClassName);
     }
 
 	@Override
 	protected Class<?> findClass(String name) throws ClassNotFoundException {
-		String resourceName = name.replace('.', '/') + ".class";
-        try (InputStream rawInput = parent.getResourceAsStream(resourceName);
-        	 BufferedInputStream input = new BufferedInputStream(rawInput)) {
-        	ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-            int data = input.read();
-
-            while(data != -1){
-                buffer.write(data);
-                data = input.read();
+		long start = System.nanoTime();
+		Object event = JfrEvents.beginClassDefine();
+		try {
+			return readClass(name, event);
+		} finally {
+			RunnerMetrics metrics = this.metrics;
+			if (metrics != null && !ClassPreloader.isPreloading()) {
+				metrics.getClassLoadNanos().record(System.nanoTime() - start);
+			}
+		}
+	}
+	
+	private Class<?> readClass(String name, Object event) throws ClassNotFoundException {
+        try {
+            URL resource = parent.getResource(ClassBytesCache.resourceName(name));
+            if (resource == null) {
+                throw new ClassNotFoundException(name);
             }
-            input.close();
-            rawInput.close();
-
-            byte[] classData = buffer.toByteArray();
+            if (!reloadPolicy.reload(name, resource, mainRoot)) {
+                return parent.loadClass(name);
+            }
+            ClassBytesCache.Entry classData = ClassBytesCache.read(resource);
+            loadedClasses.put(name, classData.hash());
 
-            return defineClass(name,
-                    classData, 0, classData.length);
+            byte[] bytes = classData.bytes();
+            Class<?> loaded = defineClass(name, bytes, 0, bytes.length);
+            JfrEvents.endClassDefine(event, name, bytes.length);
+            definedClasses.add(loaded);
+            return loaded;
 
         } catch (SecurityException e) {
         	return parent.loadClass(name);
@@ -49,5 +100,41 @@ public class TempClassLoader extends ClassLoader {
         }
 	}
 	
+	/**
+	 * @return the classes this loader has defined so far, in the order it defined them.
+	 */
+	List<Class<?>> getDefinedClasses() {
+		synchronized (definedClasses) {
+			return new ArrayList<>(definedClasses);
+		}
+	}
+	
+	/**
+	 * @param metrics where to record class loading from now on. May be null.
+	 */
+	void setMetrics(RunnerMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * @return the URL of the directory or jar the class is in, or null if it isn't found.
+	 */
+	static String root(ClassLoader classes, String className) {
+		String resourceName = ClassBytesCache.resourceName(className);
+		URL resource = classes.getResource(resourceName);
+		if (resource == null) {
+			return null;
+		}
+		String url = resource.toExternalForm();
+		return url.endsWith(resourceName) ? url.substring(0, url.length() - resourceName.length()) : null;
+	}
+	
+	/**
+	 * @return the names of the classes this loader has defined so far, each with the SHA-256
+	 *         hash of its bytecode.
+	 */
+	public Map<String, String> getLoadedClasses() {
+		return Collections.unmodifiableMap(loadedClasses);
+	}
 	
 }
@@ -0,0 +1,159 @@
+package com.github.dwolverton.consoletester.runner;
+
+import static com.github.dwolverton.consoletester.runner.ForkedProtocol.readString;
+import static com.github.dwolverton.consoletester.runner.ForkedProtocol.writeString;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A recording of everything that passed between a test and the programs it ran: which
+ * programs were started, the blocks of output they produced and the input they were given,
+ * each with the time since the program started. Recorded by {@link RecordingRunner} and
+ * played back by {@link ReplayRunner}.
+ *
+ * <p>Transcripts are stored in a compact binary form, compressed with gzip, and identified by
+ * the SHA-256 hash of their contents. See {@link TranscriptStore}.
+ */
+public class Transcript {
+
+	private static final int MAGIC = 0x494f5452; // "IOTR"
+	private static final byte VERSION = 1;
+
+	public enum Kind {
+		/** A program was started. The text is its name. */
+		START,
+		/** The program finished a block. */
+		BLOCK,
+		/** The test gave a line of input. */
+		INPUT,
+		/** The test gave lines of input up front. The text is the lines, one per line. */
+		SCRIPT
+	}
+
+	public static class Entry {
+		private final Kind kind;
+		private final BlockEndType endType;
+		private final String text;
+		private final int millis;
+
+		Entry(Kind kind, BlockEndType endType, String text, int millis) {
+			this.kind = kind;
+			this.endType = endType;
+			this.text = text;
+			this.millis = millis;
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		/**
+		 * @return how the block ended, or null if this isn't a block.
+		 */
+		public BlockEndType getEndType() {
+			return endType;
+		}
+
+		/**
+		 * @return the program name, block output or input.
+		 */
+		public String getText() {
+			return text;
+		}
+
+		/**
+		 * @return milliseconds from the start of the program.
+		 */
+		public int getMillis() {
+			return millis;
+		}
+	}
+
+	private final List<Entry> entries = new ArrayList<>();
+
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	void add(Kind kind, BlockEndType endType, String text, int millis) {
+		entries.add(new Entry(kind, endType, text, millis));
+	}
+
+	/**
+	 * @return the uncompressed binary form, which the hash is based on.
+	 */
+	public byte[] toBytes() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			DataOutputStream out = new DataOutputStream(bytes);
+			writeTo(out);
+			out.flush();
+		} catch (IOException e) {
+			throw new RuntimeException(e); // Not possible.
+		}
+		return bytes.toByteArray();
+	}
+
+	void writeTo(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		out.writeInt(entries.size());
+		for (Entry entry : entries) {
+			out.writeByte(entry.kind.ordinal());
+			out.writeInt(entry.millis);
+			if (entry.kind == Kind.BLOCK) {
+				out.writeByte(entry.endType.ordinal());
+			}
+			writeString(out, entry.text);
+		}
+	}
+
+	static Transcript readFrom(DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+			throw new IOException("Not a transcript, or from an incompatible version");
+		}
+		Transcript transcript = new Transcript();
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			Kind kind = Kind.values()[in.readByte()];
+			int millis = in.readInt();
+			BlockEndType endType = kind == Kind.BLOCK ? BlockEndType.values()[in.readByte()] : null;
+			transcript.add(kind, endType, readString(in), millis);
+		}
+		return transcript;
+	}
+
+	/**
+	 * @return the SHA-256 hash of the transcript as hex.
+	 */
+	public String hash() {
+		return Hashing.sha256(toBytes());
+	}
+
+	/**
+	 * Write the transcript, compressed.
+	 */
+	public void write(OutputStream out) throws IOException {
+		GZIPOutputStream gzip = new GZIPOutputStream(out);
+		gzip.write(toBytes());
+		gzip.finish();
+	}
+
+	/**
+	 * Read a transcript that was written by {@link #write(OutputStream)}.
+	 */
+	public static Transcript read(InputStream in) throws IOException {
+		return readFrom(new DataInputStream(new GZIPInputStream(in)));
+	}
+
+}
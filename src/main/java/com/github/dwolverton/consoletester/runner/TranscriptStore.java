@@ -0,0 +1,89 @@
+package com.github.dwolverton.consoletester.runner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * A directory of {@link Transcript}s. Each transcript is stored once, in a file named by its
+ * hash under <code>objects</code>, so identical transcripts share a file. Named references
+ * under <code>refs</code>, such as one per test, point to the latest transcript for that name.
+ */
+public class TranscriptStore {
+
+	private final Path objects;
+	private final Path refs;
+
+	public TranscriptStore(Path dir) {
+		this.objects = dir.resolve("objects");
+		this.refs = dir.resolve("refs");
+	}
+
+	/**
+	 * Store the transcript if it isn't stored already.
+	 * @return its hash.
+	 */
+	public String save(Transcript transcript) throws IOException {
+		String hash = transcript.hash();
+		Path file = objects.resolve(hash + ".iot");
+		if (!Files.exists(file)) {
+			Files.createDirectories(objects);
+			Path temp = Files.createTempFile(objects, hash, ".tmp");
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				transcript.write(out);
+			}
+			moveIntoPlace(temp, file);
+		}
+		return hash;
+	}
+
+	public Transcript load(String hash) throws IOException {
+		try (InputStream in = Files.newInputStream(objects.resolve(hash + ".iot"))) {
+			return Transcript.read(in);
+		}
+	}
+
+	/**
+	 * Point the name to the transcript with the given hash.
+	 */
+	public void tag(String name, String hash) throws IOException {
+		Files.createDirectories(refs);
+		Path temp = Files.createTempFile(refs, "ref", ".tmp");
+		Files.write(temp, hash.getBytes(StandardCharsets.UTF_8));
+		moveIntoPlace(temp, refFile(name));
+	}
+
+	/**
+	 * @return the transcript the name points to, if any.
+	 */
+	public Optional<Transcript> find(String name) throws IOException {
+		Path ref = refFile(name);
+		if (!Files.exists(ref)) {
+			return Optional.empty();
+		}
+		String hash = new String(Files.readAllBytes(ref), StandardCharsets.UTF_8).trim();
+		return Optional.of(load(hash));
+	}
+
+	/**
+	 * Names can be anything, such as a JUnit unique id, so they are hashed to make file names.
+	 */
+	private Path refFile(String name) {
+		return refs.resolve(Hashing.sha256(name.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static void moveIntoPlace(Path temp, Path file) throws IOException {
+		try {
+			Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+}
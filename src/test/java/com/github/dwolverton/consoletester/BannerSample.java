@@ -0,0 +1,19 @@
+package com.github.dwolverton.consoletester;
+
+import java.util.Scanner;
+
+/**
+ * Prints a banner when its class is initialized, which should happen on every run.
+ */
+public class BannerSample {
+
+	static {
+		System.out.println("Welcome!");
+	}
+
+	public static void main(String[] args) {
+		System.out.println("Name?");
+		System.out.println("Hello " + new Scanner(System.in).nextLine());
+	}
+
+}
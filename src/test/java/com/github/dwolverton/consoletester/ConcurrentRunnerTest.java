@@ -0,0 +1,144 @@
+package com.github.dwolverton.consoletester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.dwolverton.consoletester.junit5.GradingTest;
+import com.github.dwolverton.consoletester.match.Match;
+import com.github.dwolverton.consoletester.runner.ProgramThreads;
+
+@GradingTest
+class ConcurrentRunnerTest {
+
+	private static void greeter() {
+		Scanner scnr = new Scanner(System.in);
+		System.out.println("What's your name?");
+		String name = scnr.nextLine();
+		System.out.println("Hello " + name);
+	}
+
+	@Test
+	void testTwoProgramsInterleaved(IOTester io1, IOTester io2) {
+		io1.start(ConcurrentRunnerTest::greeter);
+		io2.start(ConcurrentRunnerTest::greeter);
+		io1.out("What's your name?");
+		io2.out("What's your name?");
+		io2.in("Minnie");
+		io1.in("Mickey");
+		io1.out("Hello Mickey");
+		io2.out("Hello Minnie");
+		io1.end();
+		io2.end();
+	}
+
+	@Test
+	void testChildThreadOutputStaysWithProgram(IOTester io1, IOTester io2) {
+		io1.start(() -> {
+			Thread child = new Thread(() -> System.out.println("From child"));
+			child.start();
+			try {
+				child.join();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		});
+		io2.start(() -> System.out.println("Just me"));
+		io1.out("From child");
+		io2.out("Just me");
+		io2.maybeOut("From child").ifPresent(f -> {
+			throw new AssertionError("Output from another program was captured.");
+		});
+		io1.end();
+		io2.end();
+	}
+
+	@Test
+	void testManyProgramsInParallel() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 32; i++) {
+				String name = "Name" + i;
+				results.add(pool.submit(() -> {
+					IOTester io = new IOTester();
+					io.start(ConcurrentRunnerTest::greeter);
+					io.prompt("What's your name?", name);
+					String found = io.out(Match.regex("Hello (\\w+)")).getPart(1);
+					io.end();
+					return found;
+				}));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				assertEquals("Name" + i, results.get(i).get());
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void testManyPausedProgramsOnVirtualThreads() {
+		List<IOTester> testers = new ArrayList<>();
+		try {
+			for (int i = 0; i < 200; i++) {
+				IOTester io = new IOTester();
+				io.setVirtualThreads(true);
+				io.start(() -> {
+					Scanner scnr = new Scanner(System.in);
+					System.out.println("Virtual: " + Thread.currentThread().toString().startsWith("VirtualThread"));
+					System.out.println("What's your name?");
+					String name = scnr.nextLine();
+					System.out.println("Hello " + name);
+				});
+				io.out("Virtual: " + ProgramThreads.isVirtualSupported());
+				io.out("What's your name?");
+				testers.add(io);
+			}
+			for (int i = 0; i < testers.size(); i++) {
+				testers.get(i).in("Name" + i);
+			}
+			for (int i = 0; i < testers.size(); i++) {
+				testers.get(i).out("Hello Name" + i);
+				testers.get(i).end();
+			}
+		} finally {
+			testers.forEach(IOTester::skipToEnd);
+		}
+	}
+
+	private static final ThreadLocal<String> local = new ThreadLocal<>();
+	private static final InheritableThreadLocal<String> inheritable = new InheritableThreadLocal<>();
+
+	@Test
+	void testReusedThreadStartsClean(IOTester io) {
+		for (int i = 0; i < 20; i++) {
+			io.start(() -> {
+				Thread t = Thread.currentThread();
+				System.out.println("Interrupted: " + t.isInterrupted());
+				System.out.println("Name: " + t.getName() + ", priority: " + t.getPriority());
+				System.out.println("Handler set: " + (t.getUncaughtExceptionHandler() != t.getThreadGroup()));
+				System.out.println("Locals: " + local.get() + ", " + inheritable.get());
+				t.interrupt();
+				t.setName("Renamed");
+				t.setPriority(Thread.MIN_PRIORITY);
+				t.setUncaughtExceptionHandler((thread, e) -> {});
+				local.set("left over");
+				inheritable.set("left over");
+			});
+			io.out("Interrupted: false");
+			io.out("Name: IOTester program, priority: " + Thread.NORM_PRIORITY);
+			io.out("Handler set: false");
+			io.out("Locals: null, null");
+			io.end();
+		}
+	}
+
+}
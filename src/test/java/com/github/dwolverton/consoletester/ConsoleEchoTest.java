@@ -0,0 +1,105 @@
+package com.github.dwolverton.consoletester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.dwolverton.consoletester.runner.ConsoleEcho;
+
+class ConsoleEchoTest {
+
+	/** A console that can't keep up until it is released. */
+	private static class StuckConsole extends OutputStream {
+		final ByteArrayOutputStream written = new ByteArrayOutputStream();
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public synchronized void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public synchronized void write(byte[] b, int off, int len) throws IOException {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			written.write(b, off, len);
+		}
+
+		synchronized String text() {
+			return new String(written.toByteArray(), Charset.defaultCharset());
+		}
+	}
+
+	@Test
+	void testEchoInOrder() throws IOException {
+		ByteArrayOutputStream console = new ByteArrayOutputStream();
+		ConsoleEcho echo = new ConsoleEcho(console, 1 << 20);
+		OutputStream out = echo.stream(true);
+		for (int i = 0; i < 1000; i++) {
+			byte[] line = ("Line " + i + "\n").getBytes(Charset.defaultCharset());
+			out.write(line, 0, line.length);
+			if (i % 100 == 0) {
+				echo.println("[" + i + "]");
+			}
+		}
+		assertTrue(echo.flush(5000));
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			expected.append("Line ").append(i).append("\n");
+			if (i % 100 == 0) {
+				expected.append("[").append(i).append("]").append(System.lineSeparator());
+			}
+		}
+		assertEquals(expected.toString(), new String(console.toByteArray(), Charset.defaultCharset()));
+		assertEquals(0, echo.getDroppedBytes());
+	}
+
+	@Test
+	void testSlowConsoleDropsProgramOutput() throws IOException {
+		StuckConsole console = new StuckConsole();
+		ConsoleEcho echo = new ConsoleEcho(console, 100);
+		OutputStream out = echo.stream(true);
+		byte[] chunk = "0123456789".getBytes(Charset.defaultCharset());
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < 1000; i++) {
+			out.write(chunk, 0, chunk.length);
+		}
+		echo.println("[input]");
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue(elapsed < 1000, "Writing took " + elapsed + "ms.");
+
+		console.release.countDown();
+		assertTrue(echo.flush(5000));
+		String text = console.text();
+		assertTrue(echo.getDroppedBytes() >= 10000 - 200, "Dropped " + echo.getDroppedBytes());
+		assertTrue(text.contains("bytes of output not shown because the console fell behind"), text);
+		assertTrue(text.endsWith("[input]" + System.lineSeparator()), text);
+	}
+
+	@Test
+	void testSlowConsoleLimitsOtherOutput() throws IOException {
+		StuckConsole console = new StuckConsole();
+		ConsoleEcho echo = new ConsoleEcho(console, 100);
+		OutputStream out = echo.stream(false);
+		byte[] chunk = "0123456789".getBytes(Charset.defaultCharset());
+		for (int i = 0; i < 1000; i++) {
+			out.write(chunk, 0, chunk.length);
+		}
+		console.release.countDown();
+		assertTrue(echo.flush(5000));
+		// Up to the hard limit of 400 may be queued, and as much again taken for the stuck write.
+		assertTrue(echo.getDroppedBytes() >= 10000 - 1000, "Dropped " + echo.getDroppedBytes());
+		assertTrue(console.text().contains("bytes of output not shown"), console.text());
+	}
+
+}
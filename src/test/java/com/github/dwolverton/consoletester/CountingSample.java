@@ -0,0 +1,22 @@
+package com.github.dwolverton.consoletester;
+
+import java.util.Scanner;
+
+/**
+ * Prints how many times it has been run, so tests can tell a real run from a cached one.
+ */
+public class CountingSample {
+
+	public static final String RUNS = "consoletester.test.runs";
+
+	public static void main(String[] args) {
+		int run = Integer.getInteger(RUNS, 0) + 1;
+		System.setProperty(RUNS, String.valueOf(run));
+		System.out.println("Run " + run);
+		Scanner scnr = new Scanner(System.in);
+		System.out.println("What's your name?");
+		String name = scnr.nextLine();
+		System.out.println("Hello " + name);
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.github.dwolverton.consoletester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.dwolverton.consoletester.runner.FileEchoSink;
+import com.github.dwolverton.consoletester.runner.RingEchoSink;
+import com.github.dwolverton.consoletester.runner.Runner;
+
+class EchoSinkTest {
+
+	private static IOTester greet(Runner runner) {
+		IOTester io = new IOTester(runner);
+		io.start(StaticScannerSample.class);
+		io.prompt("What's your name?", "Mickey");
+		io.out("Hello Mickey");
+		io.end();
+		return io;
+	}
+
+	@Test
+	void testRingKeepsEcho() {
+		Runner runner = new Runner();
+		RingEchoSink ring = new RingEchoSink(1024);
+		runner.setEchoSink(ring);
+		greet(runner);
+		String nl = System.lineSeparator();
+		assertEquals("What's your name?" + nl + "«Mickey»" + nl + "Hello Mickey" + nl, ring.getText());
+	}
+
+	@Test
+	void testRingKeepsLastLines() {
+		RingEchoSink ring = new RingEchoSink(32);
+		for (int i = 0; i < 100; i++) {
+			ring.println("Line " + i);
+		}
+		String nl = System.lineSeparator();
+		String text = ring.getText();
+		assertTrue(text.startsWith("..." + nl + "Line "), text);
+		assertTrue(text.endsWith("Line 98" + nl + "Line 99" + nl), text);
+		assertTrue(text.length() <= 32 + 3 + nl.length(), text);
+	}
+
+	@Test
+	void testRingNeedsCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new RingEchoSink(0));
+		assertThrows(IllegalArgumentException.class, () -> new RingEchoSink(-1));
+	}
+
+	@Test
+	void testFile(@TempDir Path dir) throws IOException {
+		Path file = dir.resolve("echo.log");
+		Runner runner = new Runner();
+		FileEchoSink sink = new FileEchoSink(file, false);
+		runner.setEchoSink(sink);
+		sink.println("=== Test ===");
+		greet(runner);
+		sink.close();
+		String nl = System.lineSeparator();
+		assertEquals("=== Test ===" + nl + "What's your name?" + nl + "«Mickey»" + nl + "Hello Mickey" + nl,
+				new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.github.dwolverton.consoletester;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Keeps the names it has seen in a list held by an enum constant.
+ */
+public class EnumListSample {
+
+	private enum Guests {
+		ALL;
+
+		private final List<String> names = new ArrayList<>();
+	}
+
+	public static void main(String[] args) {
+		System.out.println("What's your name?");
+		String name = new Scanner(System.in).nextLine();
+		Guests.ALL.names.add(name);
+		System.out.println("Hello " + name);
+	}
+
+}
@@ -0,0 +1,21 @@
+package com.github.dwolverton.consoletester;
+
+import java.util.Scanner;
+
+/**
+ * Reads its greeting from a system property when its enum constant is created.
+ */
+public class EnumPropertySample {
+
+	private enum Greeting {
+		HELLO;
+
+		private final String text = System.getProperty("consoletester.test.greeting", "Hello");
+	}
+
+	public static void main(String[] args) {
+		System.out.println("What's your name?");
+		System.out.println(Greeting.HELLO.text + " " + new Scanner(System.in).nextLine());
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.github.dwolverton.consoletester;
+
+import java.util.Scanner;
+
+/**
+ * Keeps its greeting in an enum constant that can't change.
+ */
+public class EnumSample {
+
+	private enum Greeting {
+		HELLO("Hello");
+
+		private final String text;
+
+		Greeting(String text) {
+			this.text = text;
+		}
+	}
+
+	public static void main(String[] args) {
+		System.out.println("What's your name?");
+		System.out.println(Greeting.HELLO.text + " " + new Scanner(System.in).nextLine());
+	}
+
+}
@@ -0,0 +1,11 @@
+package com.github.dwolverton.consoletester;
+
+public class ExitingSample {
+
+	public static void main(String[] args) {
+		System.out.println("Goodbye, cruel world");
+		System.exit(1);
+		System.out.println("Never printed");
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.github.dwolverton.consoletester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import com.github.dwolverton.consoletester.runner.BlockEndType;
+import com.github.dwolverton.consoletester.runner.ForkedRunner;
+import com.github.dwolverton.consoletester.runner.ForkedWorkerPool;
+import com.github.dwolverton.consoletester.runner.IOBlock;
+
+class ForkedRunnerTest {
+
+	private static ForkedWorkerPool pool = new ForkedWorkerPool(2, 2);
+
+	@AfterAll
+	static void closePool() {
+		pool.close();
+	}
+
+	@Test
+	void testPrompt() {
+		IOTester io = new IOTester(new ForkedRunner(pool));
+		io.start(StaticScannerSample.class);
+		io.out("What's your name?");
+		io.in("Mickey");
+		io.out("Hello Mickey");
+		io.end();
+	}
+
+	@Test
+	void testScript() {
+		IOTester io = new IOTester(new ForkedRunner(pool));
+		io.start(StaticScannerSample.class);
+		io.script()
+			.prompt("What's your name?", "Mickey")
+			.out("Hello Mickey")
+			.exec();
+		io.end();
+	}
+
+	@Test
+	void testWorkersReused() {
+		try (ForkedWorkerPool single = new ForkedWorkerPool(1, 3)) {
+			ForkedRunner runner = new ForkedRunner(single);
+			List<String> workers = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				runner.start(WorkerIdSample.class);
+				workers.add(runner.nextBlock().getOutput());
+				runner.terminate(false);
+			}
+			// Three runs, then a new worker.
+			assertEquals(workers.get(0), workers.get(1));
+			assertEquals(workers.get(0), workers.get(2));
+			assertNotEquals(workers.get(0), workers.get(3));
+		}
+	}
+
+	@Test
+	void testNotStarted() {
+		ForkedRunner runner = new ForkedRunner(pool);
+		runner.in("Mickey");
+		runner.script(new ArrayList<>());
+		IOBlock block = runner.nextBlock();
+		assertEquals(BlockEndType.END, block.getEndType());
+	}
+
+	@Test
+	void testSystemExitContained() {
+		IOTester io = new IOTester(new ForkedRunner(pool));
+		io.start(ExitingSample.class);
+		io.out("Goodbye, cruel world");
+		io.end();
+
+		io.start(StaticScannerSample.class);
+		io.prompt("What's your name?", "Mickey");
+		io.out("Hello Mickey");
+		io.end();
+	}
+
+	@Test
+	void testOnlyMainClasses() {
+		IOTester io = new IOTester(new ForkedRunner(pool));
+		assertThrows(UnsupportedOperationException.class, () -> io.start(() -> System.out.println("Hi")));
+	}
+
+	@Test
+	void testMissingClass() {
+		IOTester io = new IOTester(new ForkedRunner(pool));
+		assertThrows(RuntimeException.class, () -> io.start("com.example.DoesNotExist"));
+	}
+
+}
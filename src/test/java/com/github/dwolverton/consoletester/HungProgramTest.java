@@ -1,11 +1,18 @@
 package com.github.dwolverton.consoletester;
 
 import static com.github.dwolverton.consoletester.TestUtil.assertFails;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 
 import com.github.dwolverton.consoletester.IOTester;
 import com.github.dwolverton.consoletester.junit5.GradingTest;
+import com.github.dwolverton.consoletester.runner.HangDetector;
+import com.github.dwolverton.consoletester.runner.Runner;
 
 @GradingTest
 class HungProgramTest {
@@ -42,4 +49,156 @@ class HungProgramTest {
 		io.skipToEnd();
 	}
 
+	@Test
+	void testInfiniteLoopDetectedQuickly(IOTester io) {
+		long start = System.currentTimeMillis();
+		io.start(() -> {
+			System.out.println("Alpha");
+			@SuppressWarnings("unused")
+			int i = 0;
+			while (true) {
+				i++;
+			}
+		});
+		assertFails(
+				"Expected console output to contain: <Omega> but the program is hung, perhaps in an infinite loop.",
+				() -> {
+					io.out("Omega");
+				});
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue(elapsed < 2000, "Hang took " + elapsed + "ms to detect.");
+		io.skipToEnd();
+	}
+
+	@Test
+	void testAllocatingLoopDetectedQuickly(IOTester io) {
+		long start = System.currentTimeMillis();
+		io.start(() -> {
+			System.out.println("Alpha");
+			int[][] kept = new int[16][];
+			for (int i = 0;; i++) {
+				kept[i % kept.length] = new int[64];
+			}
+		});
+		assertFails(
+				"Expected console output to contain: <Omega> but the program is hung, perhaps in an infinite loop.",
+				() -> {
+					io.out("Omega");
+				});
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue(elapsed < 2000, "Hang took " + elapsed + "ms to detect.");
+		io.skipToEnd();
+	}
+
+	@Test
+	void testSlowProgramMakingProgressIsNotHung(IOTester io) {
+		io.start(() -> {
+			for (int i = 0; i < 8; i++) {
+				System.out.print(".");
+				try {
+					Thread.sleep(500);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+			System.out.println("Done");
+		});
+		io.out("Done");
+		io.end();
+	}
+
+	@Test
+	void testComputingProgramIsNotHung(IOTester io) {
+		// Computing without output needs a larger CPU budget than the default.
+		io.setHangDetector(new HangDetector(3000, 3000, 10000));
+		io.start(() -> {
+			// No output for a second, just CPU.
+			int[] values = new int[1000];
+			long end = System.nanoTime() + 1_000_000_000L;
+			long sum = 0;
+			while (System.nanoTime() < end) {
+				for (int i = 0; i < values.length; i++) {
+					values[i] = values[i] * 31 + i;
+					sum += values[i];
+				}
+			}
+			System.out.println(sum == 42 ? "Unlikely" : "Done");
+		});
+		io.out("Done");
+		io.end();
+	}
+
+	@Test
+	void testCustomCeiling(IOTester io) {
+		io.setHangDetector(new HangDetector(200, 3000, 1000));
+		io.start(() -> {
+			while (!Thread.currentThread().isInterrupted()) {
+				System.out.print(".");
+			}
+		});
+		assertFails(
+				"Expected end of program but the program is hung, perhaps in an infinite loop.",
+				() -> {
+					io.end();
+				});
+	}
+
+	private static void ignoreInterruptsFor(long millis) {
+		long end = System.currentTimeMillis() + millis;
+		while (System.currentTimeMillis() < end) {
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				// Keep going.
+			}
+		}
+	}
+
+	@Test
+	void testTerminateDoesNotWaitForUncooperativeProgram(IOTester io) {
+		io.start(() -> {
+			System.out.println("Alpha");
+			ignoreInterruptsFor(1500);
+		});
+		io.out("Alpha");
+		long start = System.currentTimeMillis();
+		io.skipToEnd();
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue(elapsed < 500, "Terminate took " + elapsed + "ms.");
+		assertTrue(Runner.getZombieCount() >= 1, "Zombie program not tracked.");
+	}
+
+	@Test
+	void testZombieOutputDoesNotReachNextProgram(IOTester io) throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch printed = new CountDownLatch(1);
+		io.start(() -> {
+			while (release.getCount() > 0) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					// Keep going.
+				}
+			}
+			System.out.println("Zombie");
+			printed.countDown();
+		});
+		io.skipToEnd();
+		io.start(() -> {
+			Scanner scnr = new Scanner(System.in);
+			System.out.println("Fresh");
+			System.out.println("Got " + scnr.nextLine());
+		});
+		io.out("Fresh");
+		// The terminated program prints while the next one is running.
+		release.countDown();
+		assertTrue(printed.await(5, TimeUnit.SECONDS), "Terminated program didn't print.");
+		io.in("x");
+		io.maybeOut("Zombie").ifPresent(f -> {
+			throw new AssertionError("Output from a terminated program was captured.");
+		});
+		io.out("Got x");
+		io.end();
+	}
+
 }
@@ -2,8 +2,12 @@ package com.github.dwolverton.consoletester;
 import static com.github.dwolverton.consoletester.TestUtil.assertFails;
 import static com.github.dwolverton.consoletester.match.Match.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 
@@ -586,6 +590,45 @@ class IOTester2Test {
 		io.end();
 	}
 	
+	@Test
+	void testManyPrompts(IOTester io) {
+		io.start(() -> {
+			Scanner scnr = new Scanner(System.in);
+			int total = 0;
+			for (int i = 0; i < 10000; i++) {
+				System.out.print("Number? ");
+				total += scnr.nextInt();
+			}
+			System.out.println("Total: " + total);
+		});
+		// CPU time rather than wall time, so that other load on the machine doesn't count.
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long start = threads.getCurrentThreadCpuTime();
+		for (int i = 0; i < 10000; i++) {
+			io.prompt("Number?", 1);
+		}
+		long cpuMillis = TimeUnit.NANOSECONDS.toMillis(threads.getCurrentThreadCpuTime() - start);
+		assertTrue(cpuMillis < 10000, "Prompts took " + cpuMillis + "ms of CPU.");
+		io.out("Total: 10000");
+		io.end();
+	}
+	
+	@Test
+	void testInputLargerThanPipe(IOTester io) {
+		io.start(() -> {
+			Scanner scnr = new Scanner(System.in);
+			System.out.println("Ready");
+			System.out.println("Length " + scnr.nextLine().length());
+		});
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < 100000; i++) {
+			line.append('x');
+		}
+		io.prompt("Ready", line);
+		io.out("Length 100000");
+		io.end();
+	}
+	
 	
 	// maybeIn
 	// disallow to end
@@ -0,0 +1,54 @@
+package com.github.dwolverton.consoletester;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.dwolverton.consoletester.runner.JfrEvents;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+class JfrEventsTest {
+
+	@Test
+	void testEventsAreRecorded() throws Exception {
+		Set<String> names = new HashSet<>();
+		Path file = Files.createTempFile("consoletester", ".jfr");
+		try (Recording recording = new Recording()) {
+			// Defines the events, so that they can be enabled.
+			JfrEvents.inputDelivered(0, false);
+			for (String name : new String[] { "ProgramStart", "BlockEnd", "Input", "Terminate", "ClassDefine", "Match" }) {
+				recording.enable("consoletester." + name);
+			}
+			recording.start();
+
+			IOTester io = new IOTester();
+			io.start(StaticScannerSample.class);
+			io.prompt("What's your name?", "Mickey");
+			io.out("Hello Mickey");
+			io.end();
+
+			recording.stop();
+			recording.dump(file);
+			for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+				names.add(event.getEventType().getName());
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+		assertTrue(names.contains("consoletester.ProgramStart"), names.toString());
+		assertTrue(names.contains("consoletester.BlockEnd"), names.toString());
+		assertTrue(names.contains("consoletester.Input"), names.toString());
+		assertTrue(names.contains("consoletester.Terminate"), names.toString());
+		assertTrue(names.contains("consoletester.ClassDefine"), names.toString());
+		assertTrue(names.contains("consoletester.Match"), names.toString());
+	}
+
+}
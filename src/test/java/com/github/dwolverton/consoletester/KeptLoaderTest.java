@@ -0,0 +1,58 @@
+package com.github.dwolverton.consoletester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.dwolverton.consoletester.runner.Runner;
+
+class KeptLoaderTest {
+
+	@Test
+	void testStaticFieldsAreReset() {
+		Runner runner = new Runner();
+		runner.setKeepClassLoader(true);
+		Set<Object> loaders = new HashSet<>();
+		for (int i = 0; i < 5; i++) {
+			IOTester io = new IOTester(runner);
+			io.start(StaticCounterSample.class);
+			io.out("Count 1, tally 1, last none");
+			io.in("run " + i);
+			io.end();
+			loaders.add(System.getProperties().get(StaticCounterSample.LOADER));
+		}
+		// One to learn which classes the program uses, then one that is kept.
+		assertEquals(2, loaders.size());
+	}
+
+	@Test
+	void testStaticInitializerRunsEveryTime() {
+		Runner runner = new Runner();
+		runner.setKeepClassLoader(true);
+		for (int i = 0; i < 4; i++) {
+			IOTester io = new IOTester(runner);
+			io.start(BannerSample.class);
+			io.out("Welcome!");
+			io.prompt("Name?", "run " + i);
+			io.out("Hello run " + i);
+			io.end();
+		}
+	}
+
+	@Test
+	void testUnrestorableFieldsGetNewLoaders() {
+		Runner runner = new Runner();
+		runner.setKeepClassLoader(true);
+		for (String name : new String[] { "Mickey", "Minnie", "Goofy" }) {
+			IOTester io = new IOTester(runner);
+			io.start(StaticScannerSample.class);
+			io.prompt("What's your name?", name);
+			io.out("Hello " + name);
+			io.end();
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.github.dwolverton.consoletester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class LoaderReuseTest {
+
+	@Test
+	void testProgramWithoutStaticStateSharesLoader() {
+		assertEquals("new, to be shared: no static state", run(SimpleSample.class, "Mickey"));
+		assertEquals("shared: no static state", run(SimpleSample.class, "Minnie"));
+		assertEquals("shared: no static state", run(SimpleSample.class, "Goofy"));
+	}
+
+	@Test
+	void testProgramWithStaticStateGetsNewLoaders() {
+		String reason = "new: " + StaticScannerSample.class.getName() + ".scnr is a static field that isn't final";
+		assertEquals(reason, run(StaticScannerSample.class, "Mickey"));
+		assertEquals(reason, run(StaticScannerSample.class, "Minnie"));
+	}
+
+	@Test
+	void testProgramWithImmutableEnumSharesLoader() {
+		assertEquals("new, to be shared: no static state", run(EnumSample.class, "Mickey"));
+		assertEquals("shared: no static state", run(EnumSample.class, "Minnie"));
+	}
+
+	@Test
+	void testEnumWithMutableFieldGetsNewLoaders() {
+		String reason = "new: " + EnumListSample.class.getName() + "$Guests.names is an enum field that may refer to a mutable object";
+		assertEquals(reason, run(EnumListSample.class, "Mickey"));
+		assertEquals(reason, run(EnumListSample.class, "Minnie"));
+	}
+
+	@Test
+	void testEnumConstructorWithSideEffectsGetsNewLoaders() {
+		String reason = "new: the static initializer of " + EnumPropertySample.class.getName()
+				+ "$Greeting calls java.lang.System.getProperty";
+		assertEquals(reason, run(EnumPropertySample.class, "Mickey"));
+		assertEquals(reason, run(EnumPropertySample.class, "Minnie"));
+	}
+
+	private static String run(Class<?> program, String name) {
+		IOTester io = new IOTester();
+		io.start(program);
+		io.prompt("What's your name?", name);
+		io.out("Hello " + name);
+		io.end();
+		return io.getMetrics().getClassLoaderDecision();
+	}
+
+}
@@ -0,0 +1,181 @@
+package com.github.dwolverton.consoletester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.dwolverton.consoletester.match.Match;
+import com.github.dwolverton.consoletester.runner.EchoSink;
+import com.github.dwolverton.consoletester.runner.OutputBuffer;
+import com.github.dwolverton.consoletester.runner.Runner;
+
+class OutputBufferTest {
+
+	@Test
+	void testCharacterSplitAcrossWrites() {
+		OutputBuffer buffer = new OutputBuffer();
+		byte[] bytes = "aé€😀b".getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < bytes.length; i++) {
+			buffer.write(bytes, i, 1);
+		}
+		assertEquals("aé€😀b", buffer.view(0, buffer.length()).toString());
+		assertEquals(bytes.length, buffer.byteCount());
+	}
+
+	@Test
+	void testViewsAcrossChunks() {
+		OutputBuffer buffer = new OutputBuffer();
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			String line = "Line " + i + " 😀\n";
+			expected.append(line);
+			byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+			buffer.write(bytes, 0, bytes.length);
+		}
+		assertEquals(expected.length(), buffer.length());
+		assertEquals(expected.toString(), buffer.view(0, buffer.length()).toString());
+		assertEquals(expected.substring(16000, 70000), buffer.view(16000, 70000).toString());
+		assertEquals(expected.substring(16100, 16300), buffer.view(16000, 70000).subSequence(100, 300).toString());
+	}
+
+	@Test
+	void testViewUnaffectedByReset() {
+		OutputBuffer buffer = new OutputBuffer();
+		byte[] bytes = "Hello".getBytes(StandardCharsets.UTF_8);
+		buffer.write(bytes, 0, bytes.length);
+		CharSequence view = buffer.view(0, buffer.length());
+		buffer.reset();
+		bytes = "Bye".getBytes(StandardCharsets.UTF_8);
+		buffer.write(bytes, 0, bytes.length);
+		assertEquals("Hello", view.toString());
+		assertEquals("Bye", buffer.view(0, buffer.length()).toString());
+	}
+
+	@Test
+	void testMatchView() {
+		OutputBuffer buffer = new OutputBuffer();
+		StringBuilder output = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			output.append("Number ").append(i).append('\n');
+		}
+		byte[] bytes = output.toString().getBytes(StandardCharsets.UTF_8);
+		buffer.write(bytes, 0, bytes.length);
+		CharSequence view = buffer.view(0, buffer.length());
+		assertEquals(output.indexOf("9999"), Match.lineWith("9999").match(view, 0).get().getStart());
+		assertEquals(output.indexOf("5000"), Match.exactWholeWord("5000").match(view, 100).get().getStart());
+	}
+
+	@Test
+	void testSpillToDisk() {
+		OutputBuffer buffer = new OutputBuffer(1000);
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			String line = "Line " + i + " 😀\n";
+			expected.append(line);
+			byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+			buffer.write(bytes, 0, bytes.length);
+		}
+		assertTrue(buffer.isSpilled());
+		CharSequence view = buffer.view(0, buffer.length());
+		assertEquals(expected.toString(), view.toString());
+		assertEquals(expected.substring(16000, 70000), buffer.view(16000, 70000).toString());
+		assertEquals(expected.indexOf("Line 19999 "), Match.lineWith("Line 19999 ").match(view, 0).get().getStart());
+	}
+
+	@Test
+	void testSpillFileReusedAfterReset() {
+		OutputBuffer buffer = new OutputBuffer(1000);
+		for (String word : new String[] { "First", "Second" }) {
+			StringBuilder expected = new StringBuilder();
+			for (int i = 0; i < 20000; i++) {
+				expected.append(word).append(' ').append(i).append('\n');
+			}
+			byte[] bytes = expected.toString().getBytes(StandardCharsets.UTF_8);
+			buffer.write(bytes, 0, bytes.length);
+			assertTrue(buffer.isSpilled());
+			assertEquals(expected.toString(), buffer.view(0, buffer.length()).toString());
+			buffer.reset();
+		}
+		buffer.close();
+		byte[] bytes = "After close".getBytes(StandardCharsets.UTF_8);
+		buffer.write(bytes, 0, bytes.length);
+		assertEquals("After close", buffer.view(0, buffer.length()).toString());
+	}
+
+	@Test
+	void testSpillFileReleasedWhenProgramStops() throws Exception {
+		Path fds = Paths.get("/proc/self/fd");
+		assumeTrue(Files.isDirectory(fds), "Open files can't be listed on this system.");
+		int before = openSpillFiles(fds);
+		Runner runner = new Runner();
+		runner.setEchoSink(EchoSink.none());
+
+		// A program that ends.
+		runner.start(OutputBufferTest::printPastSpillThreshold);
+		runner.nextBlock();
+		assertEquals(before + 1, openSpillFiles(fds));
+		runner.terminate(true);
+		assertEquals(before, openSpillFiles(fds));
+
+		// A program that won't stop when terminated.
+		CountDownLatch printed = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		runner.start(() -> {
+			printPastSpillThreshold();
+			printed.countDown();
+			while (true) {
+				try {
+					release.await();
+					return;
+				} catch (InterruptedException e) {
+					// Keep going.
+				}
+			}
+		});
+		printed.await();
+		assertEquals(before + 1, openSpillFiles(fds));
+		runner.terminate(true);
+		assertEquals(before + 1, openSpillFiles(fds));
+		release.countDown();
+		for (int i = 0; i < 100 && openSpillFiles(fds) > before; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(before, openSpillFiles(fds));
+	}
+
+	private static void printPastSpillThreshold() {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < 1023; i++) {
+			line.append('x');
+		}
+		String text = line.toString();
+		// 9M characters, past the default threshold of 8M.
+		for (int i = 0; i < 9 * 1024; i++) {
+			System.out.println(text);
+		}
+	}
+
+	private static int openSpillFiles(Path fds) throws IOException {
+		try (Stream<Path> files = Files.list(fds)) {
+			return (int) files.filter(fd -> {
+				try {
+					return Files.readSymbolicLink(fd).toString().contains("iotester-output");
+				} catch (IOException e) {
+					// Closed while listing.
+					return false;
+				}
+			}).count();
+		}
+	}
+
+}
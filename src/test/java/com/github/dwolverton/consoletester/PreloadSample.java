@@ -0,0 +1,26 @@
+package com.github.dwolverton.consoletester;
+
+import java.util.Scanner;
+
+/**
+ * Only uses its other class after it is given input, so that it can be seen to be loaded
+ * ahead of time.
+ */
+public class PreloadSample {
+
+	public static final String LOADER = "consoletester.test.preloadLoader";
+
+	public static void main(String[] args) {
+		System.getProperties().put(LOADER, PreloadSample.class.getClassLoader());
+		Scanner scnr = new Scanner(System.in);
+		System.out.println("What's your name?");
+		System.out.println(Greeter.greet(scnr.nextLine()));
+	}
+
+	static class Greeter {
+		static String greet(String name) {
+			return "Hello " + name;
+		}
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.github.dwolverton.consoletester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.dwolverton.consoletester.runner.CachingRunner;
+import com.github.dwolverton.consoletester.runner.ResultCache;
+import com.github.dwolverton.consoletester.runner.Runner;
+
+class ResultCacheTest {
+
+	private static int runs() {
+		return Integer.getInteger(CountingSample.RUNS, 0);
+	}
+
+	private static void greet(ResultCache cache, String name, int expectedRun) {
+		IOTester io = new IOTester(new CachingRunner(new Runner(), cache));
+		io.start(CountingSample.class);
+		io.out("Run " + expectedRun);
+		io.prompt("What's your name?", name);
+		io.out("Hello " + name);
+		io.end();
+	}
+
+	private static long entries(Path dir) throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			return files.filter(f -> f.toString().endsWith(".iot")).count();
+		}
+	}
+
+	@Test
+	void testSameInputIsServedFromCache(@TempDir Path dir) throws IOException {
+		ResultCache cache = new ResultCache(dir);
+		int run = runs() + 1;
+		greet(cache, "Mickey", run);
+		assertEquals(1, entries(dir));
+		greet(cache, "Mickey", run);
+		assertEquals(run, runs());
+		assertEquals(1, entries(dir));
+	}
+
+	@Test
+	void testDifferentInputRunsProgram(@TempDir Path dir) throws IOException {
+		ResultCache cache = new ResultCache(dir);
+		int run = runs() + 1;
+		greet(cache, "Mickey", run);
+		// The cached output is used up to the input, then the program runs for real.
+		IOTester io = new IOTester(new CachingRunner(new Runner(), cache));
+		io.start(CountingSample.class);
+		io.out("Run " + run);
+		io.prompt("What's your name?", "Minnie");
+		io.out("Hello Minnie");
+		io.end();
+		assertEquals(run + 1, runs());
+		assertEquals(2, entries(dir));
+		// Both runs are now cached.
+		greet(cache, "Mickey", run);
+		assertEquals(run + 1, runs());
+	}
+
+	@Test
+	void testEviction(@TempDir Path dir) throws IOException {
+		ResultCache cache = new ResultCache(dir, 1);
+		greet(cache, "Mickey", runs() + 1);
+		assertEquals(0, entries(dir));
+		greet(cache, "Mickey", runs() + 1);
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.github.dwolverton.consoletester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.dwolverton.consoletester.runner.RunnerMetrics;
+import com.github.dwolverton.consoletester.runner.RunnerMetrics.Histogram;
+
+class RunnerMetricsTest {
+
+	@Test
+	void testRunIsMeasured() {
+		IOTester io = new IOTester();
+		io.start(StaticScannerSample.class);
+		io.prompt("What's your name?", "Mickey");
+		io.out("Hello Mickey");
+		io.end();
+
+		RunnerMetrics metrics = io.getMetrics();
+		assertEquals(1, metrics.getBlocksPerRun().getCount());
+		assertEquals(2, metrics.getBlocksPerRun().getMax());
+		assertEquals(2, metrics.getBlockBytes().getCount());
+		assertEquals("What's your name?\nHello Mickey\n".replace("\n", System.lineSeparator()).length(),
+				metrics.getBlockBytes().getSum());
+		assertEquals(2, metrics.getProgramNanos().getCount());
+		assertTrue(metrics.getNextBlockWaitNanos().getCount() >= 2);
+		assertTrue(metrics.getMatchNanos().getCount() >= 2);
+		assertTrue(metrics.getClassLoadNanos().getCount() >= 1);
+		assertTrue(metrics.toMap().containsKey("classLoadTime"));
+	}
+
+	@Test
+	void testHistogram() {
+		Histogram histogram = new Histogram();
+		assertEquals(0, histogram.getPercentile(0.5));
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500500, histogram.getSum());
+		assertEquals(1, histogram.getMin());
+		assertEquals(1000, histogram.getMax());
+		long median = histogram.getPercentile(0.5);
+		assertTrue(median >= 500 && median <= 1000, "Median " + median);
+		assertEquals(1000, histogram.getPercentile(1));
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.github.dwolverton.consoletester;
+
+import static com.github.dwolverton.consoletester.TestUtil.assertFails;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.Scanner;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.dwolverton.consoletester.junit5.GradingTest;
+
+@GradingTest
+class ScriptTest {
+
+	private static void greeter() {
+		Scanner scnr = new Scanner(System.in);
+		System.out.println("What's your name?");
+		String name = scnr.nextLine();
+		System.out.println("Hello " + name);
+		System.out.println("Again?");
+		if (scnr.nextLine().equals("yes")) {
+			System.out.println("Hello again " + name);
+		}
+	}
+
+	@Test
+	void testScript(IOTester io) {
+		io.start(ScriptTest::greeter);
+		io.script()
+			.prompt("What's your name?", "Mickey")
+			.out("Hello Mickey")
+			.prompt("Again?", "yes")
+			.out("Hello again Mickey")
+			.exec();
+		io.end();
+	}
+
+	@Test
+	void testScriptAfterPrompt(IOTester io) {
+		io.start(ScriptTest::greeter);
+		io.prompt("What's your name?", "Minnie");
+		io.out("Hello Minnie");
+		io.script()
+			.prompt("Again?", "no")
+			.exec();
+		io.maybeOut("Hello again").ifPresent(f -> {
+			throw new AssertionError("Unexpected output.");
+		});
+		io.end();
+	}
+
+	@Test
+	void testScriptWrongOutput(IOTester io) {
+		io.start(ScriptTest::greeter);
+		assertFails("Expected console output to contain: <Hello Minnie> but the program is waiting for user input.",
+				() -> {
+					io.script()
+						.prompt("What's your name?", "Mickey")
+						.out("Hello Minnie")
+						.exec();
+				});
+	}
+
+	@Test
+	void testScriptTooMuchInput(IOTester io) {
+		io.start(ScriptTest::greeter);
+		assertFails("Expected user to be able to enter <extra> but the program ended.",
+				() -> {
+					io.script()
+						.in("Mickey")
+						.in("no")
+						.in("extra")
+						.exec();
+				});
+	}
+
+	@Test
+	void testManyScriptedPrompts(IOTester io) {
+		io.start(() -> {
+			Scanner scnr = new Scanner(System.in);
+			int total = 0;
+			for (int i = 0; i < 10000; i++) {
+				System.out.print("Number? ");
+				total += scnr.nextInt();
+			}
+			System.out.println("Total: " + total);
+		});
+		assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			Script script = io.script();
+			for (int i = 0; i < 10000; i++) {
+				script.prompt("Number?", 1);
+			}
+			script.out("Total: 10000").exec();
+		});
+		io.end();
+	}
+
+}
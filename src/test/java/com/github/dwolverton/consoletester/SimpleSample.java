@@ -0,0 +1,17 @@
+package com.github.dwolverton.consoletester;
+
+import java.util.Scanner;
+
+/**
+ * Keeps all of its state in local variables.
+ */
+public class SimpleSample {
+
+	public static void main(String[] args) {
+		Scanner scnr = new Scanner(System.in);
+		System.out.println("What's your name?");
+		String name = scnr.nextLine();
+		System.out.println("Hello " + name);
+	}
+
+}
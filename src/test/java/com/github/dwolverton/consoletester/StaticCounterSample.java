@@ -0,0 +1,30 @@
+package com.github.dwolverton.consoletester;
+
+import java.util.Scanner;
+
+/**
+ * Keeps a count of its runs in static fields and in an enum constant, which should be reset
+ * before each run.
+ */
+public class StaticCounterSample {
+
+	public static final String LOADER = "consoletester.test.loader";
+
+	private static int count;
+	private static String last = "none";
+
+	private enum Tally {
+		RUNS;
+
+		int count;
+	}
+
+	public static void main(String[] args) {
+		System.getProperties().put(LOADER, StaticCounterSample.class.getClassLoader());
+		count++;
+		Tally.RUNS.count++;
+		System.out.println("Count " + count + ", tally " + Tally.RUNS.count + ", last " + last);
+		last = new Scanner(System.in).nextLine();
+	}
+
+}
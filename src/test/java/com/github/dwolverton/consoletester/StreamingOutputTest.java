@@ -0,0 +1,152 @@
+package com.github.dwolverton.consoletester;
+
+import static com.github.dwolverton.consoletester.TestUtil.assertFails;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.dwolverton.consoletester.junit5.GradingTest;
+import com.github.dwolverton.consoletester.match.Match;
+import com.github.dwolverton.consoletester.runner.HangDetector;
+import com.github.dwolverton.consoletester.runner.Runner;
+
+@GradingTest
+class StreamingOutputTest {
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	void testMatchBeforeProgramEnds(IOTester io) {
+		io.setStreaming(true);
+		io.start(() -> {
+			System.out.println("Answer: 42");
+			sleep(5000);
+		});
+		long start = System.currentTimeMillis();
+		io.out("Answer: 42");
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue(elapsed < 1000, "Match took " + elapsed + "ms.");
+		io.skipToEnd();
+	}
+
+	@Test
+	void testMatchBeforeHang(IOTester io) {
+		io.setStreaming(true);
+		io.setHangDetector(new HangDetector(2000, 3000, 10000));
+		io.start(() -> {
+			System.out.println("Result");
+			@SuppressWarnings("unused")
+			int i = 0;
+			while (true) {
+				i++;
+			}
+		});
+		long start = System.currentTimeMillis();
+		io.out("Result");
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue(elapsed < 1000, "Match took " + elapsed + "ms.");
+		assertFails(
+				"Expected end of program but the program is hung, perhaps in an infinite loop.",
+				() -> {
+					io.end();
+				});
+	}
+
+	@Test
+	void testIncompleteLineNotMatched(IOTester io) {
+		io.setStreaming(true);
+		io.start(() -> {
+			System.out.print("5");
+			sleep(300);
+			System.out.println("0");
+		});
+		assertFalse(io.maybeOut("5").isPresent());
+		io.out("50");
+		io.end();
+	}
+
+	@Test
+	void testNoStreamingWhileDisallowed(IOTester io) {
+		io.setStreaming(true);
+		io.start(() -> {
+			System.out.println("Red");
+			sleep(300);
+			System.out.println("Blue");
+		});
+		io.disallow("Red");
+		assertFails(
+				"Expected console output to contain: <Blue> but found output to contain: <Red>",
+				() -> {
+					io.out("Blue");
+				});
+		io.allowAll();
+		io.out("Red");
+		io.out("Blue");
+		io.end();
+	}
+
+	@Test
+	void testOneMatchRecordedPerExpectation(IOTester io) {
+		io.setStreaming(true);
+		io.start(() -> {
+			for (int i = 0; i < 20; i++) {
+				System.out.println("Line " + i);
+				sleep(20);
+			}
+			System.out.println("Last");
+			sleep(5000);
+		});
+		io.out("Last");
+		assertEquals(1, io.getMetrics().getMatchNanos().getCount());
+		io.skipToEnd();
+	}
+
+	@Test
+	void testWholeBlockMatchedByDefault(IOTester io) {
+		io.start(() -> {
+			System.out.println("Numbers: 4");
+			sleep(200);
+			System.out.println("2");
+		});
+		String numbers = io.out(Match.regex("Numbers: (\\d+(\\s+\\d+)*)")).getPart(1);
+		assertEquals("4 2", numbers.replaceAll("\\s+", " "));
+		io.end();
+	}
+
+	@Test
+	void testProgramPausedWhenTestFallsBehind() {
+		Runner runner = new Runner();
+		runner.setMaxPendingOutput(1000);
+		IOTester io = new IOTester(runner);
+		io.setStreaming(true);
+		AtomicInteger printed = new AtomicInteger();
+		io.start(() -> {
+			char[] padding = new char[90];
+			Arrays.fill(padding, '.');
+			System.out.println("Ready");
+			sleep(100);
+			for (int i = 0; i < 5000; i++) {
+				System.out.println("Line " + i + " " + new String(padding));
+				printed.incrementAndGet();
+			}
+			System.out.println("Done");
+		});
+		io.out("Ready");
+		sleep(400);
+		assertTrue(printed.get() < 5000, "Program was not paused.");
+		io.out("Done");
+		io.end();
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.github.dwolverton.consoletester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.dwolverton.consoletester.runner.ReloadPolicy;
+import com.github.dwolverton.consoletester.runner.Runner;
+import com.github.dwolverton.consoletester.runner.TempClassLoader;
+
+class TempClassLoaderTest {
+
+	@Test
+	void testChangedClassIsReadAgain() throws Exception {
+		String name = CountingSample.class.getName();
+		Path dir = Files.createTempDirectory("consoletester");
+		Path file = dir.resolve(name.replace('.', '/') + ".class");
+		Files.createDirectories(file.getParent());
+		copyClass(CountingSample.class, file);
+
+		try (URLClassLoader classes = new URLClassLoader(new URL[] { dir.toUri().toURL() }, null)) {
+			TempClassLoader first = new TempClassLoader(classes);
+			TempClassLoader second = new TempClassLoader(classes);
+			Class<?> firstClass = first.loadClass(name);
+			Class<?> secondClass = second.loadClass(name);
+			assertNotSame(firstClass, secondClass);
+			assertEquals(first.getLoadedClasses().get(name), second.getLoadedClasses().get(name));
+
+			// Some other class's bytecode, under this class's name.
+			copyClass(StaticScannerSample.class, file);
+			TempClassLoader third = new TempClassLoader(classes);
+			assertThrows(NoClassDefFoundError.class, () -> third.loadClass(name));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void testOnlyClassesBesideTheMainClassAreReloaded() throws Exception {
+		ClassLoader classes = getClass().getClassLoader();
+		String name = CountingSample.class.getName();
+		TempClassLoader loader = new TempClassLoader(classes, name, ReloadPolicy.mainClassRoot(), null);
+		assertNotSame(CountingSample.class, loader.loadClass(name));
+		assertSame(Test.class, loader.loadClass(Test.class.getName()));
+		assertEquals(Collections.singleton(name), loader.getLoadedClasses().keySet());
+
+		TempClassLoader all = new TempClassLoader(classes, name, ReloadPolicy.all(), null);
+		assertNotSame(Test.class, all.loadClass(Test.class.getName()));
+
+		TempClassLoader packages = new TempClassLoader(classes, name, ReloadPolicy.packages("org.junit"), null);
+		assertSame(CountingSample.class, packages.loadClass(name));
+		assertNotSame(Test.class, packages.loadClass(Test.class.getName()));
+	}
+
+	@Test
+	void testClassesArePreloaded() throws Exception {
+		IOTester io = new IOTester();
+		io.start(PreloadSample.class);
+		io.out("What's your name?");
+		awaitPreload();
+		// Only the main class was loaded by the program.
+		assertEquals(1, io.getMetrics().getClassLoadNanos().getCount());
+		io.in("Mickey");
+		io.out("Hello Mickey");
+		io.end();
+	}
+
+	@Test
+	void testClassesArePreloadedForKeptLoader() throws Exception {
+		Runner runner = new Runner();
+		runner.setKeepClassLoader(true);
+		IOTester io = new IOTester(runner);
+		io.start(PreloadSample.class);
+		io.out("What's your name?");
+		awaitPreload();
+		io.in("Mickey");
+		io.out("Hello Mickey");
+		io.end();
+	}
+
+	private static void awaitPreload() throws InterruptedException {
+		TempClassLoader loader = (TempClassLoader) System.getProperties().get(PreloadSample.LOADER);
+		String greeter = PreloadSample.Greeter.class.getName();
+		for (int i = 0; i < 100 && !loader.getLoadedClasses().containsKey(greeter); i++) {
+			Thread.sleep(50);
+		}
+		assertTrue(loader.getLoadedClasses().containsKey(greeter));
+	}
+
+	@Test
+	void testConcurrentLoads() throws Exception {
+		TempClassLoader loader = new TempClassLoader(getClass().getClassLoader());
+		String name = CountingSample.class.getName();
+		ExecutorService threads = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Class<?>>> loads = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				loads.add(threads.submit(() -> loader.loadClass(name)));
+			}
+			for (Future<Class<?>> load : loads) {
+				assertSame(loads.get(0).get(), load.get());
+			}
+		} finally {
+			threads.shutdown();
+		}
+	}
+
+	private static void copyClass(Class<?> c, Path file) throws Exception {
+		try (InputStream in = c.getResourceAsStream(c.getSimpleName() + ".class")) {
+			Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.github.dwolverton.consoletester;
+
+import static com.github.dwolverton.consoletester.TestUtil.assertFails;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.dwolverton.consoletester.junit5.GradingTest;
+import com.github.dwolverton.consoletester.junit5.TimeBudget;
+import com.github.dwolverton.consoletester.runner.HangDetector;
+
+@GradingTest
+class TimeBudgetTest {
+
+	private static void sleepForever() {
+		System.out.println("Alpha");
+		try {
+			Thread.sleep(60000);
+		} catch (InterruptedException e) {
+			// Terminated.
+		}
+	}
+
+	@Test
+	@TimeBudget(value = 500, unit = TimeUnit.MILLISECONDS)
+	void testBudgetCapsHangDetection(IOTester io) {
+		long start = System.currentTimeMillis();
+		io.start(TimeBudgetTest::sleepForever);
+		io.out("Alpha");
+		assertFails("Expected end of program but the time budget for the test was used up.", () -> {
+			io.end();
+		});
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue(elapsed < 2000, "Budget took " + elapsed + "ms to run out.");
+	}
+
+	@Test
+	@TimeBudget(value = 500, unit = TimeUnit.MILLISECONDS)
+	void testBudgetKeptWithCustomHangDetector(IOTester io) {
+		io.setHangDetector(new HangDetector(200, 5000, 10000));
+		long start = System.currentTimeMillis();
+		io.start(TimeBudgetTest::sleepForever);
+		assertFails("Expected end of program but the time budget for the test was used up.", () -> {
+			io.end();
+		});
+		long elapsed = System.currentTimeMillis() - start;
+		assertTrue(elapsed < 2000, "Budget took " + elapsed + "ms to run out.");
+	}
+
+	@Test
+	@TimeBudget(5)
+	void testProgramWithinBudget(IOTester io) {
+		io.start(StaticScannerSample.class);
+		io.prompt("What's your name?", "Mickey");
+		io.out("Hello Mickey");
+		io.end();
+	}
+
+}
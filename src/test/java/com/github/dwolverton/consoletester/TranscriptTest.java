@@ -0,0 +1,74 @@
+package com.github.dwolverton.consoletester;
+
+import static com.github.dwolverton.consoletester.TestUtil.assertFails;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.dwolverton.consoletester.runner.RecordingRunner;
+import com.github.dwolverton.consoletester.runner.ReplayRunner;
+import com.github.dwolverton.consoletester.runner.Runner;
+import com.github.dwolverton.consoletester.runner.Transcript;
+import com.github.dwolverton.consoletester.runner.TranscriptStore;
+
+class TranscriptTest {
+
+	private static void record(TranscriptStore store, String name, String input) {
+		IOTester io = new IOTester(new RecordingRunner(new Runner(), store, name));
+		io.start(StaticScannerSample.class);
+		io.prompt("What's your name?", input);
+		io.out("Hello");
+		io.end();
+	}
+
+	@Test
+	void testReplayWithNewAssertions(@TempDir Path dir) throws IOException {
+		TranscriptStore store = new TranscriptStore(dir);
+		record(store, "greeting", "Mickey");
+
+		IOTester io = new IOTester(new ReplayRunner(store.find("greeting").get()));
+		io.start(StaticScannerSample.class);
+		io.out("name");
+		io.in("Mickey");
+		io.out("Hello Mickey");
+		io.end();
+
+		IOTester failing = new IOTester(new ReplayRunner(store.find("greeting").get()));
+		failing.start(StaticScannerSample.class);
+		failing.in("Mickey");
+		assertFails("Expected console output to contain: <Goodbye> but the program ended.", () -> {
+			failing.out("Goodbye");
+		});
+	}
+
+	@Test
+	void testReplayWithDifferentInput(@TempDir Path dir) throws IOException {
+		TranscriptStore store = new TranscriptStore(dir);
+		record(store, "greeting", "Mickey");
+
+		IOTester io = new IOTester(new ReplayRunner(store.find("greeting").get()));
+		io.start(StaticScannerSample.class);
+		assertThrows(RuntimeException.class, () -> io.in("Minnie"));
+	}
+
+	@Test
+	void testIdenticalTranscriptsStoredOnce(@TempDir Path dir) throws IOException {
+		TranscriptStore store = new TranscriptStore(dir);
+		record(store, "one", "Mickey");
+		Transcript transcript = store.find("one").get();
+		String hash = store.save(transcript);
+		store.tag("two", hash);
+		assertEquals(hash, store.find("two").get().hash());
+		try (Stream<Path> objects = Files.list(dir.resolve("objects"))) {
+			assertEquals(1, objects.count());
+		}
+	}
+
+}
@@ -0,0 +1,14 @@
+package com.github.dwolverton.consoletester;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Prints which JVM it runs in, to tell forked workers apart.
+ */
+public class WorkerIdSample {
+
+	public static void main(String[] args) {
+		System.out.println(ManagementFactory.getRuntimeMXBean().getName());
+	}
+
+}